@@ -4,6 +4,10 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.hubbox.demo.config.SchemaInitializer;
 import com.hubbox.demo.config.ShutdownManager;
+import com.hubbox.demo.config.VirtualThreadPinningMonitor;
+import com.hubbox.demo.service.CommandScheduler;
+import com.hubbox.demo.service.CommandTracker;
+import com.hubbox.demo.service.DeviceCommandService;
 import com.hubbox.demo.service.DeviceRuleService;
 import com.hubbox.demo.service.DeviceService;
 import com.hubbox.demo.service.MqttService;
@@ -17,6 +21,11 @@ public class Application {
     private final DeviceService deviceService;
     private final SensorEventManager eventManager;
     private final MqttService mqttService;
+    private final DeviceCommandService deviceCommandService;
+    private final CommandTracker commandTracker;
+    private final CommandScheduler commandScheduler;
+    private final DeviceRuleService deviceRuleService;
+    private final VirtualThreadPinningMonitor pinningMonitor;
 
     @Inject
     public Application(Server server,
@@ -25,21 +34,38 @@ public class Application {
                        DeviceService deviceService,
                        SensorEventManager eventManager,
                        MqttService mqttService,
-                       DeviceRuleService deviceRuleService) {
+                       DeviceCommandService deviceCommandService,
+                       CommandTracker commandTracker,
+                       CommandScheduler commandScheduler,
+                       DeviceRuleService deviceRuleService,
+                       VirtualThreadPinningMonitor pinningMonitor) {
         this.server = server;
         this.shutdownManager = shutdownManager;
         this.schemaInitializer = schemaInitializer;
         this.deviceService = deviceService;
         this.eventManager = eventManager;
         this.mqttService = mqttService;
+        this.deviceCommandService = deviceCommandService;
+        this.commandTracker = commandTracker;
+        this.commandScheduler = commandScheduler;
+        this.deviceRuleService = deviceRuleService;
+        this.pinningMonitor = pinningMonitor;
         this.eventManager.addListener(deviceRuleService);
+        this.eventManager.addListener(commandTracker);
     }
 
     public void start() {
         schemaInitializer.initializeSchema();
+        pinningMonitor.start();
+        deviceCommandService.start();
+        deviceRuleService.start();
+        shutdownManager.registerService(pinningMonitor);
         shutdownManager.registerService(deviceService);
+        shutdownManager.registerService(deviceRuleService);
+        shutdownManager.registerService(commandTracker);
         shutdownManager.registerService(eventManager);
         shutdownManager.registerService(mqttService);
+        shutdownManager.registerService(commandScheduler);
         server.start();
         shutdownManager.initShutdownHook();
     }
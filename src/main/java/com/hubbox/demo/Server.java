@@ -8,10 +8,12 @@ import com.google.inject.name.Named;
 import com.hubbox.demo.controller.DeviceCommandController;
 import com.hubbox.demo.controller.DeviceController;
 import com.hubbox.demo.controller.DeviceRuleController;
+import com.hubbox.demo.controller.MetricsController;
 import com.hubbox.demo.controller.PinController;
 import com.hubbox.demo.dto.response.ResponseMessage;
 import com.hubbox.demo.exceptions.BaseRuntimeException;
 import com.hubbox.demo.exceptions.RecordNotFoundException;
+import com.hubbox.demo.util.VirtualThreads;
 import io.javalin.Javalin;
 import io.javalin.openapi.plugin.OpenApiPlugin;
 import io.javalin.openapi.plugin.swagger.SwaggerPlugin;
@@ -22,21 +24,27 @@ import lombok.extern.slf4j.Slf4j;
 public class Server implements AutoCloseable {
     private final Javalin app;
     private final int port;
+    private final boolean virtualThreads;
     private final DeviceCommandController commandController;
     private final DeviceController deviceController;
     private final DeviceRuleController deviceRuleController;
     private final PinController  pinController;
+    private final MetricsController metricsController;
 
     @Inject
     public Server(
         @Named("serverPort") int port,
+        @Named("virtualThreads") boolean virtualThreads,
         DeviceCommandController commandController,
-        DeviceController deviceController, DeviceRuleController deviceRuleController, PinController pinController) {
+        DeviceController deviceController, DeviceRuleController deviceRuleController, PinController pinController,
+        MetricsController metricsController) {
         this.port = port;
+        this.virtualThreads = virtualThreads && VirtualThreads.isSupported();
         this.commandController = commandController;
         this.deviceController = deviceController;
         this.deviceRuleController = deviceRuleController;
         this.pinController = pinController;
+        this.metricsController = metricsController;
 
         this.app = configureJavalin();
         configureRoutes();
@@ -57,6 +65,7 @@ public class Server implements AutoCloseable {
                 it.exposeHeader("Content-Type");
             }));
             config.http.defaultContentType = "application/json";
+            config.useVirtualThreads = virtualThreads;
             config.bundledPlugins.enableDevLogging();
         });
     }
@@ -77,6 +86,7 @@ public class Server implements AutoCloseable {
         deviceController.registerRoutes(app);
         deviceRuleController.registerRoutes(app);
         pinController.registerRoutes(app);
+        metricsController.registerRoutes(app);
     }
 
     private void configureExceptionHandling() {
@@ -4,6 +4,10 @@ public record AppConfig(
     DatabaseConfig database,
     MqttConfig mqtt,
     CacheConfig cache,
-    String contextPath
+    EventConfig events,
+    RuleConfig rules,
+    CommandConfig commands,
+    String contextPath,
+    Boolean virtualThreads
 ) {
 }
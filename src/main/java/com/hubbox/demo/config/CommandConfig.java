@@ -0,0 +1,17 @@
+package com.hubbox.demo.config;
+
+public record CommandConfig(
+    Long confirmTimeoutMs,
+    Long timerTickMs,
+    Double ratePerSecond,
+    Integer burst,
+    Integer maxQueueDepth
+) {
+    public CommandConfig {
+        confirmTimeoutMs = confirmTimeoutMs == null || confirmTimeoutMs < 1 ? 5000 : confirmTimeoutMs;
+        timerTickMs = timerTickMs == null || timerTickMs < 1 ? 50 : timerTickMs;
+        ratePerSecond = ratePerSecond == null || ratePerSecond <= 0 ? 5.0 : ratePerSecond;
+        burst = burst == null || burst < 1 ? 5 : burst;
+        maxQueueDepth = maxQueueDepth == null || maxQueueDepth < 1 ? 1000 : maxQueueDepth;
+    }
+}
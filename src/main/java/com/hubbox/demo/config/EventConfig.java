@@ -0,0 +1,17 @@
+package com.hubbox.demo.config;
+
+public record EventConfig(
+    EventPipelineMode pipeline,
+    Integer lanes,
+    Integer queueSize,
+    OverloadPolicy overloadPolicy,
+    Integer ringSize
+) {
+    public EventConfig {
+        pipeline = pipeline == null ? EventPipelineMode.LANES : pipeline;
+        lanes = lanes == null || lanes < 1 ? Runtime.getRuntime().availableProcessors() : lanes;
+        queueSize = queueSize == null || queueSize < 1 ? 1000 : queueSize;
+        overloadPolicy = overloadPolicy == null ? OverloadPolicy.LATEST_WINS : overloadPolicy;
+        ringSize = ringSize == null || ringSize < 2 ? 1024 : Integer.highestOneBit(ringSize - 1) << 1;
+    }
+}
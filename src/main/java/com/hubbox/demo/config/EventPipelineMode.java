@@ -0,0 +1,12 @@
+package com.hubbox.demo.config;
+
+public enum EventPipelineMode {
+    /**
+     * Events are hashed by device name onto single-threaded lanes.
+     */
+    LANES,
+    /**
+     * Events go through a preallocated ring buffer with a decode stage and a dispatch stage.
+     */
+    RING
+}
@@ -0,0 +1,13 @@
+package com.hubbox.demo.config;
+
+public enum OverloadPolicy {
+    /**
+     * A full lane rejects the incoming event.
+     */
+    DROP_NEWEST,
+    /**
+     * A full lane folds the incoming event into the device's newest event still waiting in the queue and only
+     * drops it when the device has nothing pending.
+     */
+    LATEST_WINS
+}
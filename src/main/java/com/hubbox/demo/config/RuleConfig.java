@@ -0,0 +1,17 @@
+package com.hubbox.demo.config;
+
+public record RuleConfig(
+    Integer parallelThreshold,
+    Integer parallelism,
+    Long timerTickMs,
+    Boolean profiling,
+    Integer profileSampleEvery
+) {
+    public RuleConfig {
+        parallelThreshold = parallelThreshold == null || parallelThreshold < 1 ? 64 : parallelThreshold;
+        parallelism = parallelism == null || parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism;
+        timerTickMs = timerTickMs == null || timerTickMs < 1 ? 100 : timerTickMs;
+        profiling = Boolean.TRUE.equals(profiling);
+        profileSampleEvery = profileSampleEvery == null || profileSampleEvery < 1 ? 16 : profileSampleEvery;
+    }
+}
@@ -0,0 +1,80 @@
+package com.hubbox.demo.config;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.hubbox.demo.dto.response.ThreadingStats;
+import com.hubbox.demo.util.VirtualThreads;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams {@code jdk.VirtualThreadPinned} JFR events while virtual-thread mode is on, logging where a virtual
+ * thread got pinned to its carrier and counting occurrences for the metrics endpoint.
+ */
+@Slf4j
+@Singleton
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final Duration PINNED_THRESHOLD = Duration.ofMillis(20);
+    private static final int LOGGED_FRAMES = 5;
+
+    private final boolean virtualThreads;
+    private final LongAdder pinnedEvents = new LongAdder();
+    private final AtomicLong maxPinnedMillis = new AtomicLong();
+    private RecordingStream recordingStream;
+
+    @Inject
+    public VirtualThreadPinningMonitor(@Named("virtualThreads") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads && VirtualThreads.isSupported();
+    }
+
+    public synchronized void start() {
+        if (!virtualThreads || recordingStream != null) {
+            return;
+        }
+
+        try {
+            recordingStream = new RecordingStream();
+            recordingStream.enable(PINNED_EVENT).withThreshold(PINNED_THRESHOLD).withStackTrace();
+            recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+            recordingStream.startAsync();
+            log.info("Virtual thread pinning monitor started");
+        } catch (Exception e) {
+            log.warn("Virtual thread pinning monitor could not be started", e);
+            recordingStream = null;
+        }
+    }
+
+    public synchronized ThreadingStats getStats() {
+        return new ThreadingStats(virtualThreads, recordingStream != null, pinnedEvents.sum(), maxPinnedMillis.get());
+    }
+
+    private void onPinned(RecordedEvent event) {
+        long millis = event.getDuration().toMillis();
+        pinnedEvents.increment();
+        maxPinnedMillis.accumulateAndGet(millis, Math::max);
+
+        StringBuilder frames = new StringBuilder();
+        if (event.getStackTrace() != null) {
+            event.getStackTrace().getFrames().stream().limit(LOGGED_FRAMES).map(RecordedFrame::getMethod)
+                .forEach(method -> frames.append("\n\tat ").append(method.getType().getName())
+                    .append('.').append(method.getName()));
+        }
+        log.warn("Virtual thread pinned for {} ms on {}{}", millis, event.getThread("eventThread") != null
+            ? event.getThread("eventThread").getJavaName() : "unknown thread", frames);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (recordingStream != null) {
+            recordingStream.close();
+            recordingStream = null;
+        }
+    }
+}
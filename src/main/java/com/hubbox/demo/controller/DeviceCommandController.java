@@ -4,10 +4,14 @@ import static com.hubbox.demo.util.Constants.CONTEXT_PATH;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.hubbox.demo.dto.request.BulkCommandRequest;
 import com.hubbox.demo.dto.request.DeviceCommandCreateRequest;
 import com.hubbox.demo.dto.request.DeviceCommandUpdateRequest;
 import com.hubbox.demo.dto.request.SendDeviceCommandRequest;
+import com.hubbox.demo.dto.response.BulkCommandResponse;
+import com.hubbox.demo.dto.response.CommandDelivery;
 import com.hubbox.demo.dto.response.DeviceCommandResponse;
+import com.hubbox.demo.exceptions.RecordNotFoundException;
 import com.hubbox.demo.service.DeviceCommandService;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
@@ -40,6 +44,8 @@ public class DeviceCommandController extends AbstractController {
         app.put(buildPath("{id}"), this::updateCommand);
         app.delete(buildPath("{id}"), this::deleteCommand);
         app.post(buildPath("send"), this::sendCommand);
+        app.post(buildPath("bulk"), this::sendBulkCommand);
+        app.get(buildPath("deliveries/{id}"), this::getDelivery);
     }
 
     @OpenApi(
@@ -175,20 +181,69 @@ public class DeviceCommandController extends AbstractController {
         summary = "Send command newName device",
         operationId = "sendCommand",
         tags = {"Device Commands"},
+        queryParams = {
+            @OpenApiParam(name = "wait", type = Boolean.class,
+                description = "Respond only after the device confirmed the new state or the command timed out")
+        },
         requestBody = @OpenApiRequestBody(
             content = {@OpenApiContent(from = SendDeviceCommandRequest.class)}
         ),
         responses = {
-            @OpenApiResponse(status = "200", description = "Command sent successfully"),
+            @OpenApiResponse(status = "200", content = {@OpenApiContent(from = CommandDelivery.class)}),
+            @OpenApiResponse(status = "202", content = {@OpenApiContent(from = CommandDelivery.class)}),
             @OpenApiResponse(status = "404", description = "Device not found"),
             @OpenApiResponse(status = "400", description = "Invalid command")
         }
     )
     private void sendCommand(Context ctx) {
         SendDeviceCommandRequest request = ctx.bodyAsClass(SendDeviceCommandRequest.class);
+        boolean wait = ctx.queryParamAsClass("wait", Boolean.class).getOrDefault(false);
+
+        CommandDelivery delivery = commandService.executeCommand(request);
 
-        commandService.executeCommand(request);
+        if (wait) {
+            ctx.future(() -> commandService.whenDelivered(delivery.id()).thenAccept(ctx::json));
+        } else {
+            ctx.status(202).json(delivery);
+        }
+    }
 
-        ctx.status(200).result("Command sent successfully");
+    @OpenApi(
+        path = CONTEXT_PATH + "/commands/deliveries/{id}",
+        methods = {HttpMethod.GET},
+        summary = "Get the delivery status of a sent command",
+        operationId = "getCommandDelivery",
+        tags = {"Device Commands"},
+        pathParams = {
+            @OpenApiParam(name = "id", type = Long.class, description = "Command delivery ID")
+        },
+        responses = {
+            @OpenApiResponse(status = "200", content = {@OpenApiContent(from = CommandDelivery.class)}),
+            @OpenApiResponse(status = "404", description = "Delivery not found or expired")
+        }
+    )
+    private void getDelivery(Context ctx) throws RecordNotFoundException {
+        long id = ctx.pathParamAsClass("id", Long.class).get();
+        ctx.json(commandService.getDelivery(id));
+    }
+
+    @OpenApi(
+        path = CONTEXT_PATH + "/commands/bulk",
+        methods = {HttpMethod.POST},
+        summary = "Send command to a list of devices, a model or a group",
+        operationId = "sendBulkCommand",
+        tags = {"Device Commands"},
+        requestBody = @OpenApiRequestBody(
+            content = {@OpenApiContent(from = BulkCommandRequest.class)}
+        ),
+        responses = {
+            @OpenApiResponse(status = "200", content = {@OpenApiContent(from = BulkCommandResponse.class)}),
+            @OpenApiResponse(status = "400", description = "Invalid selector or unknown group")
+        }
+    )
+    private void sendBulkCommand(Context ctx) {
+        BulkCommandRequest request = ctx.bodyAsClass(BulkCommandRequest.class);
+        BulkCommandResponse response = commandService.executeBulkCommand(request);
+        ctx.json(response);
     }
 }
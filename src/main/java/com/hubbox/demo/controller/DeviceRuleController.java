@@ -4,10 +4,14 @@ import static com.hubbox.demo.util.Constants.CONTEXT_PATH;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.hubbox.demo.dto.RuleProfileSort;
 import com.hubbox.demo.dto.request.ActivateRequest;
 import com.hubbox.demo.dto.request.DeviceRuleCreateRequest;
 import com.hubbox.demo.dto.request.DeviceRuleUpdateRequest;
+import com.hubbox.demo.dto.request.RuleReplayRequest;
 import com.hubbox.demo.dto.response.DeviceRuleResponse;
+import com.hubbox.demo.dto.response.RuleProfileReport;
+import com.hubbox.demo.dto.response.RuleReplayResponse;
 import com.hubbox.demo.service.DeviceRuleService;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
@@ -36,10 +40,13 @@ public class DeviceRuleController extends AbstractController {
     public void registerRoutes(Javalin app) {
         app.post(buildPath(), this::createRule);
         app.get(buildPath(), this::getAllRules);
+        app.get(buildPath("profile"), this::getRuleProfile);
+        app.put(buildPath("profile"), this::configureProfiling);
         app.get(buildPath("{id}"), this::getRule);
         app.put(buildPath("{id}"), this::updateRule);
         app.delete(buildPath("{id}"), this::deleteRule);
         app.post(buildPath("activate"), this::activateRule);
+        app.post(buildPath("replay"), this::replayRules);
     }
 
     @OpenApi(
@@ -164,4 +171,67 @@ public class DeviceRuleController extends AbstractController {
         ruleService.activateRules(request);
         ctx.status(200);
     }
+
+    @OpenApi(
+        path = CONTEXT_PATH + "/rules/replay",
+        methods = {HttpMethod.POST},
+        summary = "Replay recorded device events against rules without sending commands",
+        operationId = "replayRules",
+        tags = {"Device Rules"},
+        requestBody = @OpenApiRequestBody(
+            content = {@OpenApiContent(from = RuleReplayRequest.class)}
+        ),
+        responses = {
+            @OpenApiResponse(status = "200", content = {@OpenApiContent(from = RuleReplayResponse.class)}),
+            @OpenApiResponse(status = "400", description = "Invalid request")
+        }
+    )
+    private void replayRules(Context ctx) {
+        RuleReplayRequest request = ctx.bodyAsClass(RuleReplayRequest.class);
+        ctx.json(ruleService.replay(request));
+    }
+
+    @OpenApi(
+        path = CONTEXT_PATH + "/rules/profile",
+        methods = {HttpMethod.GET},
+        summary = "Get the most expensive rules from the sampled evaluation profile",
+        operationId = "getRuleProfile",
+        tags = {"Device Rules"},
+        queryParams = {
+            @OpenApiParam(name = "top", type = Integer.class, description = "Number of rules, default 20"),
+            @OpenApiParam(name = "sort", type = RuleProfileSort.class, description = "Sort key, default TOTAL_TIME")
+        },
+        responses = {
+            @OpenApiResponse(status = "200", content = {@OpenApiContent(from = RuleProfileReport.class)}),
+            @OpenApiResponse(status = "400", description = "Invalid request")
+        }
+    )
+    private void getRuleProfile(Context ctx) {
+        int top = ctx.queryParamAsClass("top", Integer.class).getOrDefault(20);
+        String sort = ctx.queryParamAsClass("sort", String.class).getOrDefault(RuleProfileSort.TOTAL_TIME.name());
+        ctx.json(ruleService.getRuleProfile(top, sort));
+    }
+
+    @OpenApi(
+        path = CONTEXT_PATH + "/rules/profile",
+        methods = {HttpMethod.PUT},
+        summary = "Enable or disable rule evaluation profiling",
+        operationId = "configureRuleProfiling",
+        tags = {"Device Rules"},
+        queryParams = {
+            @OpenApiParam(name = "enabled", type = Boolean.class, required = true),
+            @OpenApiParam(name = "sampleEvery", type = Integer.class, description = "Profile one event in N, "
+                + "default 16")
+        },
+        responses = {
+            @OpenApiResponse(status = "204", description = "Profiling updated"),
+            @OpenApiResponse(status = "400", description = "Invalid request")
+        }
+    )
+    private void configureProfiling(Context ctx) {
+        boolean enabled = ctx.queryParamAsClass("enabled", Boolean.class).get();
+        int sampleEvery = ctx.queryParamAsClass("sampleEvery", Integer.class).getOrDefault(16);
+        ruleService.configureProfiling(enabled, sampleEvery);
+        ctx.status(204);
+    }
 }
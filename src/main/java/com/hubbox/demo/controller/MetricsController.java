@@ -0,0 +1,124 @@
+package com.hubbox.demo.controller;
+
+import static com.hubbox.demo.util.Constants.CONTEXT_PATH;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.hubbox.demo.config.VirtualThreadPinningMonitor;
+import com.hubbox.demo.dto.response.CommandSchedulerStats;
+import com.hubbox.demo.dto.response.CommandTrackerStats;
+import com.hubbox.demo.dto.response.EventLaneStats;
+import com.hubbox.demo.dto.response.RuleEngineStats;
+import com.hubbox.demo.dto.response.ThreadingStats;
+import com.hubbox.demo.service.CommandScheduler;
+import com.hubbox.demo.service.CommandTracker;
+import com.hubbox.demo.service.DeviceRuleService;
+import com.hubbox.demo.service.SensorEventManager;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.openapi.HttpMethod;
+import io.javalin.openapi.OpenApi;
+import io.javalin.openapi.OpenApiContent;
+import io.javalin.openapi.OpenApiResponse;
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Singleton
+public class MetricsController extends AbstractController {
+    private final SensorEventManager eventManager;
+    private final VirtualThreadPinningMonitor pinningMonitor;
+    private final DeviceRuleService ruleService;
+    private final CommandTracker commandTracker;
+    private final CommandScheduler commandScheduler;
+
+    @Inject
+    public MetricsController(SensorEventManager eventManager, VirtualThreadPinningMonitor pinningMonitor,
+                             DeviceRuleService ruleService, CommandTracker commandTracker,
+                             CommandScheduler commandScheduler) {
+        super("metrics");
+        this.eventManager = eventManager;
+        this.pinningMonitor = pinningMonitor;
+        this.ruleService = ruleService;
+        this.commandTracker = commandTracker;
+        this.commandScheduler = commandScheduler;
+    }
+
+    @Override
+    public void registerRoutes(Javalin app) {
+        app.get(buildPath("events"), this::getEventMetrics);
+        app.get(buildPath("threads"), this::getThreadingMetrics);
+        app.get(buildPath("rules"), this::getRuleMetrics);
+        app.get(buildPath("commands"), this::getCommandMetrics);
+        app.get(buildPath("command-queue"), this::getCommandQueueMetrics);
+    }
+
+    @OpenApi(
+        path = CONTEXT_PATH + "/metrics/events",
+        methods = {HttpMethod.GET},
+        summary = "Get sensor event lane metrics",
+        operationId = "getEventMetrics",
+        tags = {"Metrics"},
+        responses = {
+            @OpenApiResponse(status = "200", content = {@OpenApiContent(from = EventLaneStats[].class)})
+        }
+    )
+    private void getEventMetrics(Context ctx) {
+        ctx.json(eventManager.getLaneStats());
+    }
+
+    @OpenApi(
+        path = CONTEXT_PATH + "/metrics/threads",
+        methods = {HttpMethod.GET},
+        summary = "Get virtual thread mode and pinning metrics",
+        operationId = "getThreadingMetrics",
+        tags = {"Metrics"},
+        responses = {
+            @OpenApiResponse(status = "200", content = {@OpenApiContent(from = ThreadingStats.class)})
+        }
+    )
+    private void getThreadingMetrics(Context ctx) {
+        ctx.json(pinningMonitor.getStats());
+    }
+
+    @OpenApi(
+        path = CONTEXT_PATH + "/metrics/rules",
+        methods = {HttpMethod.GET},
+        summary = "Get rule engine metrics",
+        operationId = "getRuleMetrics",
+        tags = {"Metrics"},
+        responses = {
+            @OpenApiResponse(status = "200", content = {@OpenApiContent(from = RuleEngineStats.class)})
+        }
+    )
+    private void getRuleMetrics(Context ctx) {
+        ctx.json(ruleService.getRuleStats());
+    }
+
+    @OpenApi(
+        path = CONTEXT_PATH + "/metrics/commands",
+        methods = {HttpMethod.GET},
+        summary = "Get command delivery counters and actuation latency per model",
+        operationId = "getCommandMetrics",
+        tags = {"Metrics"},
+        responses = {
+            @OpenApiResponse(status = "200", content = {@OpenApiContent(from = CommandTrackerStats.class)})
+        }
+    )
+    private void getCommandMetrics(Context ctx) {
+        ctx.json(commandTracker.getStats());
+    }
+
+    @OpenApi(
+        path = CONTEXT_PATH + "/metrics/command-queue",
+        methods = {HttpMethod.GET},
+        summary = "Get outbound command queue depth, rate limit and wait times per priority",
+        operationId = "getCommandQueueMetrics",
+        tags = {"Metrics"},
+        responses = {
+            @OpenApiResponse(status = "200", content = {@OpenApiContent(from = CommandSchedulerStats.class)})
+        }
+    )
+    private void getCommandQueueMetrics(Context ctx) {
+        ctx.json(commandScheduler.getStats());
+    }
+}
@@ -5,22 +5,29 @@ import com.github.benmanes.caffeine.cache.Cache;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 import com.hivemq.client.mqtt.mqtt3.Mqtt3AsyncClient;
 import com.hivemq.client.mqtt.mqtt3.Mqtt3Client;
 import com.hubbox.demo.Server;
 import com.hubbox.demo.config.CacheConfig;
 import com.hubbox.demo.config.CacheManager;
+import com.hubbox.demo.config.CommandConfig;
 import com.hubbox.demo.config.ConfigurationLoaderManager;
 import com.hubbox.demo.config.ConfigurationManager;
 import com.hubbox.demo.config.DataSourceProvider;
 import com.hubbox.demo.config.DatabaseConfig;
+import com.hubbox.demo.config.EventConfig;
 import com.hubbox.demo.config.MqttConfig;
+import com.hubbox.demo.config.RuleConfig;
 import com.hubbox.demo.config.SchemaInitializer;
+import com.hubbox.demo.config.VirtualThreadPinningMonitor;
 import com.hubbox.demo.controller.DeviceCommandController;
 import com.hubbox.demo.controller.DeviceController;
+import com.hubbox.demo.controller.MetricsController;
 import com.hubbox.demo.controller.PinController;
-import com.hubbox.demo.entities.DeviceCommandEntity;
+import com.hubbox.demo.dto.CommandKey;
+import com.hubbox.demo.dto.response.CommandDelivery;
 import com.hubbox.demo.entities.DeviceRuleEntity;
 import com.hubbox.demo.mapper.DeviceCommandMapper;
 import com.hubbox.demo.mapper.DeviceMapper;
@@ -30,6 +37,8 @@ import com.hubbox.demo.repository.DeviceCommandRepository;
 import com.hubbox.demo.repository.DeviceRepository;
 import com.hubbox.demo.repository.DeviceRuleRepository;
 import com.hubbox.demo.repository.PinRepository;
+import com.hubbox.demo.service.CommandScheduler;
+import com.hubbox.demo.service.CommandTracker;
 import com.hubbox.demo.service.DeviceCommandService;
 import com.hubbox.demo.service.DeviceRuleService;
 import com.hubbox.demo.service.DeviceService;
@@ -38,6 +47,7 @@ import com.hubbox.demo.service.PinService;
 import com.hubbox.demo.service.SensorEventManager;
 import com.hubbox.demo.util.CacheNames;
 import java.util.List;
+import java.util.Optional;
 import javax.sql.DataSource;
 
 public class AppModule extends AbstractModule {
@@ -50,6 +60,7 @@ public class AppModule extends AbstractModule {
         bind(CacheManager.class).in(Singleton.class);
         bind(DataSource.class).toProvider(DataSourceProvider.class).in(Singleton.class);
         bind(SchemaInitializer.class).asEagerSingleton();
+        bind(VirtualThreadPinningMonitor.class).in(Singleton.class);
 
         // Repositories
         bind(DeviceCommandRepository.class).in(Singleton.class);
@@ -67,6 +78,8 @@ public class AppModule extends AbstractModule {
         bind(MqttService.class).in(Singleton.class);
         bind(DeviceService.class).in(Singleton.class);
         bind(DeviceCommandService.class).in(Singleton.class);
+        bind(CommandTracker.class).in(Singleton.class);
+        bind(CommandScheduler.class).in(Singleton.class);
         bind(SensorEventManager.class).in(Singleton.class);
         bind(DeviceRuleService.class).in(Singleton.class);
         bind(PinService.class).in(Singleton.class);
@@ -75,6 +88,7 @@ public class AppModule extends AbstractModule {
         bind(DeviceController.class).in(Singleton.class);
         bind(DeviceCommandController.class).in(Singleton.class);
         bind(PinController.class).in(Singleton.class);
+        bind(MetricsController.class).in(Singleton.class);
 
         bindConstant().annotatedWith(Names.named("serverPort")).to(8080);
 
@@ -83,8 +97,14 @@ public class AppModule extends AbstractModule {
 
     @Provides
     @Singleton
-    Cache<String, List<DeviceCommandEntity>> provideDeviceCommandCache(CacheManager cacheManager) {
-        return cacheManager.getCache(CacheNames.DEVICE_COMMANDS);
+    Cache<CommandKey, Boolean> provideMissingCommandCache(CacheManager cacheManager) {
+        return cacheManager.getCache(CacheNames.MISSING_COMMANDS);
+    }
+
+    @Provides
+    @Singleton
+    Cache<Long, CommandDelivery> provideCommandDeliveryCache(CacheManager cacheManager) {
+        return cacheManager.getCache(CacheNames.COMMAND_DELIVERIES);
     }
 
     @Provides
@@ -122,6 +142,31 @@ public class AppModule extends AbstractModule {
         return configManager.getAppConfig().cache();
     }
 
+    @Provides
+    @Singleton
+    @Named("virtualThreads")
+    Boolean provideVirtualThreads(ConfigurationLoaderManager configManager) {
+        return Boolean.TRUE.equals(configManager.getAppConfig().virtualThreads());
+    }
+
+    @Provides
+    @Singleton
+    EventConfig provideEventConfig(ConfigurationLoaderManager configManager) {
+        return Optional.ofNullable(configManager.getAppConfig().events()).orElseGet(() -> new EventConfig(null, null, null, null, null));
+    }
+
+    @Provides
+    @Singleton
+    RuleConfig provideRuleConfig(ConfigurationLoaderManager configManager) {
+        return Optional.ofNullable(configManager.getAppConfig().rules()).orElseGet(() -> new RuleConfig(null, null, null, null, null));
+    }
+
+    @Provides
+    @Singleton
+    CommandConfig provideCommandConfig(ConfigurationLoaderManager configManager) {
+        return Optional.ofNullable(configManager.getAppConfig().commands()).orElseGet(() -> new CommandConfig(null, null, null, null, null));
+    }
+
     @Provides
     @Singleton
     DatabaseConfig provideDatabaseConfig(ConfigurationLoaderManager configManager) {
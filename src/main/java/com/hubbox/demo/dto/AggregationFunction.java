@@ -0,0 +1,10 @@
+package com.hubbox.demo.dto;
+
+public enum AggregationFunction {
+    AVG,
+    MIN,
+    MAX,
+    SUM,
+    COUNT,
+    DELTA // Penceredeki en yeni ve en eski değer arasındaki fark
+}
@@ -0,0 +1,14 @@
+package com.hubbox.demo.dto;
+
+public record AggregationSpec(
+    AggregationFunction function,
+    Long windowMs, // Pencere uzunluğu (milisaniye cinsinden)
+    Integer maxSamples // Pencerede tutulacak en fazla örnek sayısı
+) {
+    public static final int DEFAULT_MAX_SAMPLES = 1024;
+    public static final int MAX_SAMPLES_LIMIT = 65536;
+
+    public int effectiveMaxSamples() {
+        return maxSamples != null ? maxSamples : DEFAULT_MAX_SAMPLES;
+    }
+}
@@ -0,0 +1,7 @@
+package com.hubbox.demo.dto;
+
+public record CommandKey(
+    String modelId,
+    String commandName
+) {
+}
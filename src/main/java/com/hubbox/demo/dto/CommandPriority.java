@@ -0,0 +1,10 @@
+package com.hubbox.demo.dto;
+
+/**
+ * Outbound command classes, highest priority first.
+ */
+public enum CommandPriority {
+    USER,
+    RULE,
+    BULK
+}
@@ -0,0 +1,23 @@
+package com.hubbox.demo.dto;
+
+public enum CommandStatus {
+    /**
+     * Waiting in the send queue.
+     */
+    QUEUED,
+    /**
+     * Published, waiting for the device to report the new state.
+     */
+    PENDING,
+    /**
+     * Published, but the payload has no properties a state report could confirm.
+     */
+    SENT,
+    CONFIRMED,
+    TIMED_OUT,
+    /**
+     * Dropped from the send queue because a newer command to the device set the same properties.
+     */
+    SUPERSEDED,
+    FAILED
+}
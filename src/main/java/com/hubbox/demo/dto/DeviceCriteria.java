@@ -7,6 +7,7 @@ public record DeviceCriteria(
     String deviceName,
     String field,
     ComparisonOperator operator,
-    Object value
+    Object value,
+    AggregationSpec aggregation // Boşsa son değer karşılaştırılır
 ) {
 }
@@ -0,0 +1,6 @@
+package com.hubbox.demo.dto;
+
+public enum FiringMode {
+    LEVEL, // Koşul sağlandığı sürece her eşleşmede tetiklenir
+    EDGE // Sadece false -> true geçişinde tetiklenir
+}
@@ -5,6 +5,8 @@ import java.util.List;
 public record RuleCondition(
     List<DeviceCriteria> criteria,
     Long maxTimeDifferenceMs, // Maksimum zaman farkı (milisaniye cinsinden)
-    List<String> requiredDeviceSequence // Sıralı cihaz listesi
+    List<String> requiredDeviceSequence, // Sıralı cihaz listesi
+    RuleFiring firing, // Boşsa her eşleşmede tetiklenir
+    RuleTrigger trigger // Boşsa kural sensör olaylarıyla tetiklenir
 ) {
 }
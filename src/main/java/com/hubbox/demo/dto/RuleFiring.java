@@ -0,0 +1,21 @@
+package com.hubbox.demo.dto;
+
+public record RuleFiring(
+    FiringMode mode,
+    Long minIntervalMs, // İki tetiklenme arasındaki en kısa süre (milisaniye cinsinden)
+    Double hysteresis // Sayısal eşiklerin geri dönüş bandı
+) {
+    public static final RuleFiring DEFAULT = new RuleFiring(FiringMode.LEVEL, null, null);
+
+    public FiringMode effectiveMode() {
+        return mode != null ? mode : FiringMode.LEVEL;
+    }
+
+    public long effectiveMinIntervalMs() {
+        return minIntervalMs != null ? minIntervalMs : 0;
+    }
+
+    public double effectiveHysteresis() {
+        return hysteresis != null ? hysteresis : 0;
+    }
+}
@@ -0,0 +1,10 @@
+package com.hubbox.demo.dto;
+
+public enum RuleProfileSort {
+    EVALUATIONS,
+    MATCHES,
+    FIRINGS,
+    TOTAL_TIME, // Toplam değerlendirme süresi
+    MAX_TIME, // En uzun tek değerlendirme
+    AVG_TIME
+}
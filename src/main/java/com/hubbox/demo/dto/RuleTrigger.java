@@ -0,0 +1,10 @@
+package com.hubbox.demo.dto;
+
+public record RuleTrigger(
+    TriggerType type,
+    String cron, // CRON için: dakika saat gün ay haftanın-günü
+    Long everyMs, // EVERY için aralık (milisaniye cinsinden)
+    String deviceName, // INACTIVITY için izlenen cihaz
+    Long inactivityMs // INACTIVITY için sessizlik süresi (milisaniye cinsinden)
+) {
+}
@@ -0,0 +1,7 @@
+package com.hubbox.demo.dto;
+
+public enum TriggerType {
+    CRON, // Cron ifadesine göre (örn. "0 22 * * MON-FRI")
+    EVERY, // Sabit aralıklarla
+    INACTIVITY // Cihazdan belirli süre olay gelmezse
+}
@@ -0,0 +1,13 @@
+package com.hubbox.demo.dto.request;
+
+import java.util.List;
+import java.util.Map;
+
+public record BulkCommandRequest(
+    List<String> deviceNames, // Seçicilerden yalnızca biri verilmeli
+    String modelId,
+    String groupName, // zigbee2mqtt grubunun friendly_name değeri
+    String commandName,
+    Map<String, Object> parameters
+) {
+}
@@ -0,0 +1,10 @@
+package com.hubbox.demo.dto.request;
+
+import java.util.Map;
+
+public record ReplayEvent(
+    Long timestamp, // Olay zamanı (epoch milisaniye)
+    String deviceName,
+    Map<String, Object> payload
+) {
+}
@@ -0,0 +1,10 @@
+package com.hubbox.demo.dto.request;
+
+import java.util.List;
+
+public record RuleReplayRequest(
+    List<DeviceRuleCreateRequest> rules, // Boşsa kayıtlı aktif kurallar kullanılır
+    List<ReplayEvent> events,
+    Long untilTimestamp // Son olaydan sonra zamanlanmış kurallar için saatin ilerletileceği an
+) {
+}
@@ -0,0 +1,27 @@
+package com.hubbox.demo.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.List;
+
+public record BridgeGroup(
+
+    @JsonProperty("id")
+    Integer id,
+
+    @JsonProperty("friendly_name")
+    String friendlyName,
+
+    @JsonProperty("members")
+    List<GroupMember> members
+) {
+
+    public record GroupMember(
+
+        @JsonProperty("ieee_address")
+        String ieeeAddress,
+
+        @JsonProperty("endpoint")
+        Integer endpoint
+    ) {
+    }
+}
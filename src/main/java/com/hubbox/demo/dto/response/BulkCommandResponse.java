@@ -0,0 +1,14 @@
+package com.hubbox.demo.dto.response;
+
+import java.util.List;
+import java.util.Map;
+
+public record BulkCommandResponse(
+    int devices, // Komutun gönderildiği cihaz sayısı
+    int publishes, // Grup yayınları dahil MQTT mesajı sayısı
+    List<String> groups, // Tek /set ile komut gönderilen gruplar
+    List<String> unknownDevices,
+    List<String> unsupportedDevices, // Modelinde bu isimde komut olmayan cihazlar
+    Map<String, Long> commandIds // Cihaz başına teslim takibi numarası
+) {
+}
@@ -0,0 +1,14 @@
+package com.hubbox.demo.dto.response;
+
+import com.hubbox.demo.dto.CommandStatus;
+
+public record CommandDelivery(
+    long id,
+    String deviceName,
+    String commandName,
+    CommandStatus status,
+    Long sentAt, // Yayınlanana kadar boş
+    Long latencyMs, // Sadece onaylanan komutlarda dolu
+    String error
+) {
+}
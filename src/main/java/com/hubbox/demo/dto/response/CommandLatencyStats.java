@@ -0,0 +1,12 @@
+package com.hubbox.demo.dto.response;
+
+public record CommandLatencyStats(
+    String modelId,
+    long confirmed,
+    double meanMs,
+    long p50Ms, // Yüzdelikler histogram kovasının üst sınırıdır
+    long p95Ms,
+    long p99Ms,
+    long maxMs
+) {
+}
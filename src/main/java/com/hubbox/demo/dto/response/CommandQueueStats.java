@@ -0,0 +1,18 @@
+package com.hubbox.demo.dto.response;
+
+import com.hubbox.demo.dto.CommandPriority;
+
+public record CommandQueueStats(
+    CommandPriority priority,
+    int depth, // Şu an kuyrukta bekleyen komutlar
+    long enqueued,
+    long published,
+    long coalesced, // Aynı cihaz ve özelliklere giden daha yeni bir komutla değiştirilenler
+    long rejected, // Kuyruk doluyken reddedilenler
+    double meanWaitMs,
+    long p50WaitMs,
+    long p95WaitMs,
+    long p99WaitMs,
+    long maxWaitMs
+) {
+}
@@ -0,0 +1,12 @@
+package com.hubbox.demo.dto.response;
+
+import java.util.List;
+
+public record CommandSchedulerStats(
+    double ratePerSecond,
+    int burst,
+    int maxQueueDepth,
+    double availableTokens,
+    List<CommandQueueStats> queues
+) {
+}
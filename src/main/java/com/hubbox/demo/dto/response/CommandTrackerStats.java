@@ -0,0 +1,15 @@
+package com.hubbox.demo.dto.response;
+
+import java.util.List;
+
+public record CommandTrackerStats(
+    long confirmTimeoutMs,
+    int pending,
+    long sent,
+    long confirmed,
+    long timedOut,
+    long superseded,
+    long failed,
+    List<CommandLatencyStats> models
+) {
+}
@@ -53,4 +53,10 @@ public record DeviceResponse(
     @JsonProperty("description")
     String description
 ) {
+
+    public DeviceResponse withDefinition(Definition definition) {
+        return new DeviceResponse(id, disabled, friendlyName, ieeeAddress, interviewCompleted, interviewing,
+            networkAddress, supported, type, dateCode, definition, manufacturer, modelId, powerSource,
+            softwareBuildId, description);
+    }
 }
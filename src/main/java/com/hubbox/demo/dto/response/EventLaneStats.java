@@ -0,0 +1,11 @@
+package com.hubbox.demo.dto.response;
+
+public record EventLaneStats(
+    int lane,
+    int queueDepth,
+    int remainingCapacity,
+    long completedEvents,
+    long coalescedEvents,
+    long droppedEvents
+) {
+}
@@ -0,0 +1,13 @@
+package com.hubbox.demo.dto.response;
+
+import java.util.Map;
+
+public record ReplayedAction(
+    long timestamp,
+    Long ruleId,
+    String ruleName,
+    String targetDeviceName,
+    String commandName,
+    Map<String, Object> parameters
+) {
+}
@@ -0,0 +1,14 @@
+package com.hubbox.demo.dto.response;
+
+public record RuleEngineStats(
+    long ruleSetVersion,
+    int enabledRules,
+    int conditionNodes,
+    int thresholdIndexedNodes,
+    int slidingWindows,
+    int pendingTimers,
+    long firings,
+    long suppressedFirings,
+    RuleEvaluationStats evaluation
+) {
+}
@@ -0,0 +1,12 @@
+package com.hubbox.demo.dto.response;
+
+public record RuleEvaluationStats(
+    int parallelThreshold,
+    int parallelism,
+    long parallelEvaluations,
+    long sequentialSamples,
+    Double parallelNanosPerRule, // Henüz ölçüm yoksa boş
+    Double sequentialNanosPerRule,
+    boolean parallelPaysOff
+) {
+}
@@ -0,0 +1,14 @@
+package com.hubbox.demo.dto.response;
+
+public record RuleProfileEntry(
+    Long ruleId,
+    String ruleName,
+    long evaluations, // Örneklenen değerlendirme sayısı
+    long matches,
+    long firings,
+    long totalNanos,
+    long maxNanos,
+    double avgNanos,
+    Long lastFiredAt // Epoch milisaniye, hiç tetiklenmediyse boş
+) {
+}
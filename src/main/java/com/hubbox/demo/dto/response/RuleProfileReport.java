@@ -0,0 +1,10 @@
+package com.hubbox.demo.dto.response;
+
+import java.util.List;
+
+public record RuleProfileReport(
+    boolean enabled,
+    int sampleEvery, // Her N olaydan biri ölçülür
+    List<RuleProfileEntry> rules
+) {
+}
@@ -0,0 +1,13 @@
+package com.hubbox.demo.dto.response;
+
+import java.util.List;
+
+public record RuleReplayResponse(
+    int events,
+    long firings,
+    long suppressedFirings,
+    long elapsedNanos,
+    double eventsPerSecond,
+    List<ReplayedAction> actions
+) {
+}
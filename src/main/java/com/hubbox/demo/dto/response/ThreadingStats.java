@@ -0,0 +1,9 @@
+package com.hubbox.demo.dto.response;
+
+public record ThreadingStats(
+    boolean virtualThreads,
+    boolean pinningMonitorActive,
+    long pinnedEvents,
+    long maxPinnedMillis
+) {
+}
@@ -0,0 +1,7 @@
+package com.hubbox.demo.exceptions;
+
+public class CommandSupersededException extends BaseRuntimeException {
+    public CommandSupersededException(String message) {
+        super(message);
+    }
+}
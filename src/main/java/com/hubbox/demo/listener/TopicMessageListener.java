@@ -1,6 +1,17 @@
 package com.hubbox.demo.listener;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 public interface TopicMessageListener {
 
     void onMessage(String topic, String message);
+
+    /**
+     * Receives the raw, read-only payload as delivered by the MQTT client. Listeners that can consume bytes
+     * directly should override this to skip the String decoding done here.
+     */
+    default void onMessage(String topic, ByteBuffer payload) {
+        onMessage(topic, StandardCharsets.UTF_8.decode(payload).toString());
+    }
 }
@@ -35,6 +35,7 @@ public class DeviceRuleRepository extends BaseCrudRepository<DeviceRuleEntity, L
             rule.setId(rs.getLong("id"));
             rule.setName(rs.getString("name"));
             rule.setDescription(rs.getString("description"));
+            rule.setEnabled(rs.getBoolean("enabled"));
             rule.setCondition(objectMapper.readValue(rs.getString("condition_json"), RuleCondition.class));
             rule.setAction(objectMapper.readValue(rs.getString("action_json"), RuleAction.class));
             return rule;
@@ -55,22 +56,22 @@ public class DeviceRuleRepository extends BaseCrudRepository<DeviceRuleEntity, L
 
     @Override
     protected String getInsertColumns() {
-        return " (name, description, condition_json, action_json)";
+        return " (name, description, condition_json, action_json, enabled)";
     }
 
     @Override
     protected String getInsertPlaceholders() {
-        return " (?, ?, ?, ?)";
+        return " (?, ?, ?, ?, ?)";
     }
 
     @Override
     protected String getUpdateColumns() {
-        return " name = ?, description = ?, condition_json = ?, action_json = ?";
+        return " name = ?, description = ?, condition_json = ?, action_json = ?, enabled = ?";
     }
 
     @Override
     protected int getUpdateParametersCount() {
-        return 4;
+        return 5;
     }
 
     private void addParameters(PreparedStatement stmt, DeviceRuleEntity entity) throws SQLException {
@@ -79,6 +80,7 @@ public class DeviceRuleRepository extends BaseCrudRepository<DeviceRuleEntity, L
             stmt.setString(2, entity.getDescription());
             stmt.setString(3, objectMapper.writeValueAsString(entity.getCondition()));
             stmt.setString(4, objectMapper.writeValueAsString(entity.getAction()));
+            stmt.setBoolean(5, Boolean.TRUE.equals(entity.getEnabled()));
         } catch (JsonProcessingException e) {
             throw new SQLException("Error serializing JSON", e);
         }
@@ -0,0 +1,139 @@
+package com.hubbox.demo.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.hubbox.demo.dto.response.DeviceResponse;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming decoder for the zigbee2mqtt {@code bridge/devices} payload. Scalar device fields are read straight
+ * from the token stream, while each {@code definition} object is skipped and only its byte range is recorded.
+ * The bytes are copied out of the payload only for devices the registry does not already know, and bound to
+ * {@link com.hubbox.demo.dto.response.Definition} only when requested.
+ */
+public class BridgeDevicesDecoder {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final JsonFactory jsonFactory;
+
+    public BridgeDevicesDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    public List<DeviceRegistry.BridgeDevice> decode(ByteBuffer payload) throws IOException {
+        ByteBuffer source = payload.duplicate();
+        int base = source.position();
+        List<DeviceRegistry.BridgeDevice> devices = new ArrayList<>();
+
+        try (JsonParser parser = jsonFactory.createParser(new ByteBufferBackedInputStream(payload.duplicate()))) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected device array in bridge payload");
+            }
+
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                int start = base + (int) parser.currentTokenLocation().getByteOffset();
+                DeviceFields fields = readDevice(parser, base);
+                int end = base + (int) parser.currentLocation().getByteOffset();
+
+                DeviceResponse device = fields.toResponse();
+                String key = device.ieeeAddress() != null ? device.ieeeAddress() : device.friendlyName();
+                devices.add(new DeviceRegistry.BridgeDevice(key, hash(source, start, end),
+                    () -> new RegisteredDevice(device, copy(source, fields.definitionStart, fields.definitionEnd))));
+            }
+        }
+
+        return devices;
+    }
+
+    private DeviceFields readDevice(JsonParser parser, int base) throws IOException {
+        DeviceFields fields = new DeviceFields();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            switch (name) {
+                case "id" -> fields.id = token.isNumeric() ? parser.getLongValue() : null;
+                case "disabled" -> fields.disabled = booleanValue(token);
+                case "friendly_name" -> fields.friendlyName = textValue(parser, token);
+                case "ieee_address" -> fields.ieeeAddress = textValue(parser, token);
+                case "interview_completed" -> fields.interviewCompleted = booleanValue(token);
+                case "interviewing" -> fields.interviewing = booleanValue(token);
+                case "network_address" -> fields.networkAddress = token.isNumeric() ? parser.getIntValue() : null;
+                case "supported" -> fields.supported = booleanValue(token);
+                case "type" -> fields.type = textValue(parser, token);
+                case "date_code" -> fields.dateCode = textValue(parser, token);
+                case "manufacturer" -> fields.manufacturer = textValue(parser, token);
+                case "model_id" -> fields.modelId = textValue(parser, token);
+                case "power_source" -> fields.powerSource = textValue(parser, token);
+                case "software_build_id" -> fields.softwareBuildId = textValue(parser, token);
+                case "description" -> fields.description = textValue(parser, token);
+                case "definition" -> {
+                    if (token == JsonToken.START_OBJECT) {
+                        fields.definitionStart = base + (int) parser.currentTokenLocation().getByteOffset();
+                        parser.skipChildren();
+                        fields.definitionEnd = base + (int) parser.currentLocation().getByteOffset();
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return fields;
+    }
+
+    private static String textValue(JsonParser parser, JsonToken token) throws IOException {
+        return token == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+    }
+
+    private static Boolean booleanValue(JsonToken token) {
+        return token.isBoolean() ? token == JsonToken.VALUE_TRUE : null;
+    }
+
+    private static long hash(ByteBuffer source, int start, int end) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = start; i < end; i++) {
+            hash ^= source.get(i) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static RawDefinition copy(ByteBuffer source, int start, int end) {
+        if (start < 0) {
+            return null;
+        }
+        byte[] json = new byte[end - start];
+        source.get(start, json);
+        return new RawDefinition(json);
+    }
+
+    private static final class DeviceFields {
+        private Long id;
+        private Boolean disabled;
+        private String friendlyName;
+        private String ieeeAddress;
+        private Boolean interviewCompleted;
+        private Boolean interviewing;
+        private Integer networkAddress;
+        private Boolean supported;
+        private String type;
+        private String dateCode;
+        private String manufacturer;
+        private String modelId;
+        private String powerSource;
+        private String softwareBuildId;
+        private String description;
+        private int definitionStart = -1;
+        private int definitionEnd = -1;
+
+        private DeviceResponse toResponse() {
+            return new DeviceResponse(id, disabled, friendlyName, ieeeAddress, interviewCompleted, interviewing,
+                networkAddress, supported, type, dateCode, null, manufacturer, modelId, powerSource,
+                softwareBuildId, description);
+        }
+    }
+}
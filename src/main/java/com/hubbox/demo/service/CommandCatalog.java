@@ -0,0 +1,102 @@
+package com.hubbox.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubbox.demo.dto.CommandKey;
+import com.hubbox.demo.entities.DeviceCommandEntity;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Copy-on-write catalog of all device commands, keyed by {@link CommandKey} and by model, with each template compiled
+ * once. Lookups are one volatile read and a hash lookup; command changes rebuild the maps from the commands by id,
+ * reusing the compiled templates of unchanged commands. When a model has several commands with the same name, the
+ * one with the lowest id wins, as the repository lists them in id order.
+ */
+@Slf4j
+final class CommandCatalog {
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+    private final ObjectMapper objectMapper;
+    private volatile boolean loaded;
+
+    CommandCatalog(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    Entry find(CommandKey key) {
+        return current.get().byKey().get(key);
+    }
+
+    List<DeviceCommandEntity> commandsFor(String modelId) {
+        return current.get().byModel().getOrDefault(modelId, List.of());
+    }
+
+    int size() {
+        return current.get().byId().size();
+    }
+
+    synchronized void load(Collection<DeviceCommandEntity> commands) {
+        Map<Long, Entry> byId = new TreeMap<>();
+        for (DeviceCommandEntity command : commands) {
+            byId.put(command.getId(), compile(command));
+        }
+        loaded = true;
+        publish(byId);
+    }
+
+    /**
+     * Adds or replaces a command; a changed model or name moves it to its new key.
+     */
+    synchronized void put(DeviceCommandEntity command) {
+        Map<Long, Entry> byId = new TreeMap<>(current.get().byId());
+        byId.put(command.getId(), compile(command));
+        publish(byId);
+    }
+
+    synchronized void remove(Long id) {
+        Map<Long, Entry> byId = new TreeMap<>(current.get().byId());
+        if (byId.remove(id) != null) {
+            publish(byId);
+        }
+    }
+
+    private Entry compile(DeviceCommandEntity command) {
+        String template = command.getCommandTemplate() != null ? command.getCommandTemplate() : "";
+        return new Entry(command, CompiledCommandTemplate.compile(template, objectMapper));
+    }
+
+    private void publish(Map<Long, Entry> byId) {
+        Map<CommandKey, Entry> byKey = new HashMap<>();
+        Map<String, List<DeviceCommandEntity>> byModel = new HashMap<>();
+        for (Entry entry : byId.values()) {
+            DeviceCommandEntity command = entry.command();
+            byKey.putIfAbsent(new CommandKey(command.getModelId(), command.getCommandName()), entry);
+            byModel.computeIfAbsent(command.getModelId(), key -> new ArrayList<>()).add(command);
+        }
+        byModel.replaceAll((key, value) -> List.copyOf(value));
+
+        current.set(new Snapshot(Collections.unmodifiableMap(byId), Map.copyOf(byKey), Map.copyOf(byModel)));
+        log.debug("Command catalog published: {} commands of {} models", byId.size(), byModel.size());
+    }
+
+    record Entry(DeviceCommandEntity command, CompiledCommandTemplate template) {
+    }
+
+    private record Snapshot(
+        Map<Long, Entry> byId,
+        Map<CommandKey, Entry> byKey,
+        Map<String, List<DeviceCommandEntity>> byModel
+    ) {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), Map.of());
+    }
+}
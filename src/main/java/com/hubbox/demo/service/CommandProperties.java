@@ -0,0 +1,43 @@
+package com.hubbox.demo.service;
+
+import lombok.experimental.UtilityClass;
+
+/**
+ * How zigbee2mqtt treats the properties of a {@code /set} payload. A property is relative when its effect depends on
+ * the device's current state: a {@code TOGGLE} value, or a {@code _step} or {@code _move} key (optionally with the
+ * {@code _onoff} suffix) that changes the property named by the key's prefix, so {@code brightness_step} changes
+ * {@code brightness}.
+ */
+@UtilityClass
+class CommandProperties {
+    private static final String TOGGLE = "TOGGLE";
+    private static final String ON_OFF_SUFFIX = "_onoff";
+    private static final String[] RELATIVE_SUFFIXES = {"_step", "_move"};
+
+    static boolean isRelative(String key, Object value) {
+        return value instanceof String text && TOGGLE.equalsIgnoreCase(text) || relativeSuffix(key) != null;
+    }
+
+    /**
+     * @return the state property the device reports back for a payload key
+     */
+    static String target(String key) {
+        String suffix = relativeSuffix(key);
+        if (suffix == null) {
+            return key;
+        }
+        String base = key.endsWith(ON_OFF_SUFFIX) ? key.substring(0, key.length() - ON_OFF_SUFFIX.length()) : key;
+        return base.substring(0, base.length() - suffix.length());
+    }
+
+    private static String relativeSuffix(String key) {
+        // brightness_step_onoff da brightness_step gibi davranır
+        String base = key.endsWith(ON_OFF_SUFFIX) ? key.substring(0, key.length() - ON_OFF_SUFFIX.length()) : key;
+        for (String suffix : RELATIVE_SUFFIXES) {
+            if (base.endsWith(suffix) && base.length() > suffix.length()) {
+                return suffix;
+            }
+        }
+        return null;
+    }
+}
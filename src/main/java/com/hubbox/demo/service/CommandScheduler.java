@@ -0,0 +1,307 @@
+package com.hubbox.demo.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.hubbox.demo.config.CommandConfig;
+import com.hubbox.demo.dto.CommandPriority;
+import com.hubbox.demo.dto.MqttCommand;
+import com.hubbox.demo.dto.response.CommandQueueStats;
+import com.hubbox.demo.dto.response.CommandSchedulerStats;
+import com.hubbox.demo.exceptions.BaseRuntimeException;
+import com.hubbox.demo.exceptions.CommandSupersededException;
+import com.hubbox.demo.util.LatencyHistogram;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Outbound queue in front of {@link MqttService} for device commands, so bursts from users, rules and bulk requests
+ * do not overrun the Zigbee coordinator. Commands leave through a token bucket of {@code ratePerSecond} with room for
+ * {@code burst} back-to-back publishes, highest {@link CommandPriority} first and in arrival order within a priority.
+ * A group {@code /set} costs one token like any other publish, as it is one multicast on the radio.
+ *
+ * <p>A queued command is coalesced away when a newer command for the same topic sets all of its properties; the newer
+ * command takes the higher of the two priorities, and the future of the superseded one fails with
+ * {@link CommandSupersededException}. A queued command that only shares some properties with a newer, more urgent
+ * command for the same topic is moved up to the newer command's priority ahead of it, so it cannot overwrite the
+ * newer values afterwards. Commands whose payload is not a JSON object are never coalesced, and neither are relative
+ * commands, see {@link CommandProperties}: two queued toggles or brightness steps must both reach the device, and a
+ * relative property does not overwrite an older absolute one.
+ *
+ * <p>This application talks to one zigbee2mqtt bridge, so there is one bucket.
+ */
+@Slf4j
+@Singleton
+public class CommandScheduler implements AutoCloseable {
+    private final MqttService mqttService;
+    private final ObjectMapper objectMapper;
+    private final CommandConfig config;
+    private final double tokensPerNano;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<CommandPriority, Lane> lanes = new EnumMap<>(CommandPriority.class);
+    private final Map<String, List<Queued>> queuedByTopic = new HashMap<>();
+    private final Thread dispatcher;
+    private double tokens;
+    private long refilledAt;
+    private int depth;
+    private boolean running = true;
+
+    @Inject
+    public CommandScheduler(MqttService mqttService, ObjectMapper objectMapper, CommandConfig config) {
+        this.mqttService = mqttService;
+        this.objectMapper = objectMapper;
+        this.config = config;
+        this.tokensPerNano = config.ratePerSecond() / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = config.burst();
+        this.refilledAt = System.nanoTime();
+        for (CommandPriority priority : CommandPriority.values()) {
+            lanes.put(priority, new Lane());
+        }
+        this.dispatcher = new Thread(this::runDispatcher, "command-scheduler");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * @return completes once the command is handed to the MQTT client; fails if the queue is full, the command is
+     *     superseded before it leaves or the publish fails
+     */
+    public CompletableFuture<Void> submit(MqttCommand command, CommandPriority priority) {
+        Queued queued = new Queued(command, properties(command.payload()), priority);
+        List<Queued> superseded = new ArrayList<>();
+
+        lock.lock();
+        try {
+            if (!running) {
+                return CompletableFuture.failedFuture(new BaseRuntimeException("Command scheduler is stopped"));
+            }
+
+            List<Queued> sameTopic = queuedByTopic.getOrDefault(command.topicName(), List.of());
+            for (Queued older : sameTopic) {
+                if (!older.properties.isEmpty() && !older.relative && queued.absolute.containsAll(older.properties)) {
+                    superseded.add(older);
+                }
+            }
+            if (depth - superseded.size() >= config.maxQueueDepth()) {
+                lanes.get(priority).rejected++;
+                return CompletableFuture.failedFuture(new BaseRuntimeException("Command queue is full"));
+            }
+
+            for (Queued older : superseded) {
+                dequeue(older);
+                lanes.get(older.priority).coalesced++;
+                if (older.priority.compareTo(queued.priority) < 0) {
+                    queued.priority = older.priority;
+                }
+            }
+            for (Queued older : List.copyOf(queuedByTopic.getOrDefault(command.topicName(), List.of()))) {
+                if (older.priority.compareTo(queued.priority) > 0 && overlaps(older, queued)) {
+                    dequeue(older);
+                    older.priority = queued.priority;
+                    enqueue(older);
+                }
+            }
+            enqueue(queued);
+            lanes.get(queued.priority).enqueued++;
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        superseded.forEach(older -> older.future.completeExceptionally(
+            new CommandSupersededException("Superseded by a newer command to " + command.topicName())));
+        return queued.future;
+    }
+
+    public CommandSchedulerStats getStats() {
+        lock.lock();
+        try {
+            refill();
+            List<CommandQueueStats> queues = new ArrayList<>();
+            lanes.forEach((priority, lane) -> queues.add(new CommandQueueStats(priority, lane.queue.size(),
+                lane.enqueued, lane.published, lane.coalesced, lane.rejected, lane.waits.mean(),
+                lane.waits.percentile(0.5), lane.waits.percentile(0.95), lane.waits.percentile(0.99),
+                lane.waits.max())));
+            return new CommandSchedulerStats(config.ratePerSecond(), config.burst(), config.maxQueueDepth(), tokens,
+                queues);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runDispatcher() {
+        while (true) {
+            List<Queued> batch = new ArrayList<>();
+            lock.lock();
+            try {
+                while (running && depth == 0) {
+                    changed.await();
+                }
+                if (!running) {
+                    return;
+                }
+                refill();
+                if (tokens < 1) {
+                    changed.awaitNanos((long) Math.ceil((1 - tokens) / tokensPerNano));
+                    continue;
+                }
+                // Birikmiş jetonlar kadar komut art arda yayınlanır
+                while (tokens >= 1 && depth > 0) {
+                    Queued next = pollNext();
+                    lanes.get(next.priority).published++;
+                    tokens -= 1;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            long now = System.nanoTime();
+            for (Queued queued : batch) {
+                lanes.get(queued.priority).waits.record(TimeUnit.NANOSECONDS.toMillis(now - queued.enqueuedAt));
+                mqttService.sendCommand(queued.command.topicName(), queued.command.payload())
+                    .whenComplete((result, throwable) -> {
+                        if (throwable != null) {
+                            queued.future.completeExceptionally(throwable);
+                        } else {
+                            queued.future.complete(null);
+                        }
+                    });
+            }
+        }
+    }
+
+    private Queued pollNext() {
+        for (Lane lane : lanes.values()) {
+            Queued queued = lane.queue.peek();
+            if (queued != null) {
+                dequeue(queued);
+                return queued;
+            }
+        }
+        throw new IllegalStateException("Queue depth " + depth + " but no queued command");
+    }
+
+    private void enqueue(Queued queued) {
+        lanes.get(queued.priority).queue.add(queued);
+        depth++;
+        queuedByTopic.computeIfAbsent(queued.command.topicName(), key -> new ArrayList<>()).add(queued);
+    }
+
+    private void dequeue(Queued queued) {
+        lanes.get(queued.priority).queue.remove(queued);
+        depth--;
+        List<Queued> sameTopic = queuedByTopic.get(queued.command.topicName());
+        sameTopic.remove(queued);
+        if (sameTopic.isEmpty()) {
+            queuedByTopic.remove(queued.command.topicName());
+        }
+    }
+
+    private static boolean overlaps(Queued older, Queued newer) {
+        return older.properties.isEmpty() || newer.properties.isEmpty()
+            || !Collections.disjoint(older.properties, newer.properties);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(config.burst(), tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+    }
+
+    /**
+     * @return the properties the payload changes, each mapped to whether it is set to an absolute value
+     */
+    private Map<String, Boolean> properties(byte[] payload) {
+        try {
+            JsonNode node = objectMapper.readTree(payload);
+            if (node == null || !node.isObject()) {
+                return Map.of();
+            }
+            Map<String, Boolean> properties = new HashMap<>();
+            node.fields().forEachRemaining(field -> {
+                String key = field.getKey();
+                JsonNode value = field.getValue();
+                boolean relative = CommandProperties.isRelative(key, value.isTextual() ? value.asText() : null);
+                properties.merge(CommandProperties.target(key), !relative, Boolean::logicalAnd);
+            });
+            return properties;
+        } catch (IOException e) {
+            return Map.of();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        List<Queued> remaining = new ArrayList<>();
+        lock.lock();
+        try {
+            running = false;
+            lanes.values().forEach(lane -> {
+                remaining.addAll(lane.queue);
+                lane.queue.clear();
+            });
+            queuedByTopic.clear();
+            depth = 0;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+
+        if (!remaining.isEmpty()) {
+            log.warn("Dropping {} queued commands on shutdown", remaining.size());
+        }
+        remaining.forEach(queued -> queued.future.completeExceptionally(
+            new BaseRuntimeException("Command scheduler is stopped")));
+    }
+
+    private static final class Lane {
+        private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+        private final LatencyHistogram waits = new LatencyHistogram();
+        private long enqueued;
+        private long published;
+        private long coalesced;
+        private long rejected;
+    }
+
+    private static final class Queued {
+        private final MqttCommand command;
+        private final Set<String> properties;
+        private final Set<String> absolute = new HashSet<>();
+        private final boolean relative;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private CommandPriority priority;
+
+        private Queued(MqttCommand command, Map<String, Boolean> properties, CommandPriority priority) {
+            this.command = command;
+            this.properties = properties.keySet();
+            this.priority = priority;
+            properties.forEach((property, isAbsolute) -> {
+                if (isAbsolute) {
+                    absolute.add(property);
+                }
+            });
+            this.relative = absolute.size() < properties.size();
+        }
+    }
+}
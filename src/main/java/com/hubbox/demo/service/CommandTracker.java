@@ -0,0 +1,305 @@
+package com.hubbox.demo.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.hubbox.demo.config.CommandConfig;
+import com.hubbox.demo.dto.CommandStatus;
+import com.hubbox.demo.dto.response.CommandDelivery;
+import com.hubbox.demo.dto.response.CommandLatencyStats;
+import com.hubbox.demo.dto.response.CommandTrackerStats;
+import com.hubbox.demo.dto.response.DeviceResponse;
+import com.hubbox.demo.exceptions.CommandSupersededException;
+import com.hubbox.demo.listener.SensorEventListener;
+import com.hubbox.demo.util.HashedTimingWheel;
+import com.hubbox.demo.util.LatencyHistogram;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Correlates every {@code /set} publish with the device's next state report. A command is tracked from the moment it
+ * is created, but only reports received after its publish completed, see {@link #published}, are correlated with it,
+ * so a report that was already on its way cannot confirm it. A command is confirmed by the first such report that
+ * contains at least one of the properties it set and agrees with every set property it contains; reports that carry
+ * none of them, or an intermediate value, leave it waiting. A relative property, see {@link CommandProperties}, is
+ * confirmed by any reported value of the property it changes, so a {@code TOGGLE} of {@code state} is confirmed by
+ * {@code ON} or {@code OFF} and a {@code brightness_step} by any {@code brightness}. Properties set to a nested object,
+ * such as a {@code color} given as {@code hex}, are reported in another form and are not correlated; a command that
+ * sets nothing else finishes as {@code SENT} once published. Commands that are not confirmed within
+ * {@code confirmTimeoutMs} of their publish time out on a {@link HashedTimingWheel}. The time from publish to
+ * confirmation is recorded per device model.
+ *
+ * <p>Finished deliveries stay available for polling in the {@code commandDeliveries} cache.
+ */
+@Slf4j
+@Singleton
+public class CommandTracker implements SensorEventListener, AutoCloseable {
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 3;
+    private static final TypeReference<Map<String, Object>> PROPERTIES = new TypeReference<>() {
+    };
+    private static final Object ANY = new Object();
+
+    private final CommandConfig config;
+    private final ObjectMapper objectMapper;
+    private final Cache<Long, CommandDelivery> deliveryCache;
+    private final HashedTimingWheel wheel;
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, Pending> pendingById = new ConcurrentHashMap<>();
+    private final Map<String, List<Pending>> pendingByDevice = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> latencyByModel = new ConcurrentHashMap<>();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @Inject
+    public CommandTracker(CommandConfig config, ObjectMapper objectMapper,
+                          Cache<Long, CommandDelivery> deliveryCache) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.deliveryCache = deliveryCache;
+        this.wheel = new HashedTimingWheel(config.timerTickMs(), WHEEL_SIZE, WHEEL_LEVELS, System::currentTimeMillis);
+        this.wheel.start();
+    }
+
+    /**
+     * Starts tracking a command that is about to be published to the device.
+     *
+     * @return the id to report the outcome of the publish with, and to poll
+     */
+    public long track(DeviceResponse device, String commandName, byte[] payload) {
+        long id = ids.incrementAndGet();
+        pendingById.put(id, new Pending(id, device.friendlyName(), device.modelId(), commandName,
+            expectedProperties(payload)));
+        return id;
+    }
+
+    /**
+     * Marks the command as published: from now on state reports of the device are correlated with it, and the
+     * confirmation timeout and the latency clock start. Until then the command is {@code QUEUED}, so the time it
+     * waits in the {@link CommandScheduler} counts neither towards the timeout nor the latency.
+     */
+    public void published(long id) {
+        Pending pending = pendingById.get(id);
+        if (pending == null) {
+            return;
+        }
+        pending.sentAt = System.currentTimeMillis();
+        pending.startNanos = System.nanoTime();
+
+        if (pending.expected.isEmpty()) {
+            if (finish(pending, CommandStatus.SENT, null, null)) {
+                sent.increment();
+            }
+            return;
+        }
+
+        pendingByDevice.compute(pending.deviceName, (key, list) -> {
+            List<Pending> next = list != null ? new ArrayList<>(list) : new ArrayList<>();
+            next.add(pending);
+            return List.copyOf(next);
+        });
+        pending.timeout = wheel.scheduleAfter(config.confirmTimeoutMs(), () -> {
+            if (finish(pending, CommandStatus.TIMED_OUT, null, null)) {
+                timedOut.increment();
+            }
+        });
+        if (pending.future.isDone()) {
+            unlink(pending);
+        }
+    }
+
+    public void publishFailed(long id, Throwable error) {
+        Pending pending = pendingById.get(id);
+        if (pending == null) {
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof CommandSupersededException) {
+            if (finish(pending, CommandStatus.SUPERSEDED, null, cause.getMessage())) {
+                superseded.increment();
+            }
+        } else if (finish(pending, CommandStatus.FAILED, null, cause.getMessage())) {
+            failed.increment();
+        }
+    }
+
+    /**
+     * Completes with the final delivery once the command is confirmed, times out or fails to publish, or with
+     * {@code null} for an unknown id.
+     */
+    public CompletableFuture<CommandDelivery> whenDone(long id) {
+        Pending pending = pendingById.get(id);
+        return pending != null ? pending.future : CompletableFuture.completedFuture(deliveryCache.getIfPresent(id));
+    }
+
+    public Optional<CommandDelivery> getDelivery(long id) {
+        Pending pending = pendingById.get(id);
+        if (pending != null) {
+            return Optional.of(pending.toDelivery(pending.sentAt != null ? CommandStatus.PENDING
+                : CommandStatus.QUEUED, null, null));
+        }
+        return Optional.ofNullable(deliveryCache.getIfPresent(id));
+    }
+
+    @Override
+    public void onDeviceDataReceived(String deviceName, Map<String, Object> data) {
+        List<Pending> waiting = pendingByDevice.get(deviceName);
+        if (waiting == null) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        for (Pending pending : waiting) {
+            if (confirms(pending.expected, data)) {
+                long latencyMs = (now - pending.startNanos) / 1_000_000;
+                if (finish(pending, CommandStatus.CONFIRMED, latencyMs, null)) {
+                    confirmed.increment();
+                    latencyByModel.computeIfAbsent(String.valueOf(pending.modelId), key -> new LatencyHistogram())
+                        .record(latencyMs);
+                }
+            }
+        }
+    }
+
+    public CommandTrackerStats getStats() {
+        List<CommandLatencyStats> models = latencyByModel.entrySet().stream()
+            .map(entry -> {
+                LatencyHistogram histogram = entry.getValue();
+                return new CommandLatencyStats(entry.getKey(), histogram.count(), histogram.mean(),
+                    histogram.percentile(0.5), histogram.percentile(0.95), histogram.percentile(0.99),
+                    histogram.max());
+            })
+            .sorted(Comparator.comparing(CommandLatencyStats::modelId))
+            .toList();
+        return new CommandTrackerStats(config.confirmTimeoutMs(), pendingById.size(), sent.sum(), confirmed.sum(),
+            timedOut.sum(), superseded.sum(), failed.sum(), models);
+    }
+
+    private Map<String, Object> expectedProperties(byte[] payload) {
+        Map<String, Object> properties;
+        try {
+            properties = objectMapper.readValue(payload, PROPERTIES);
+        } catch (IOException e) {
+            return Map.of();
+        }
+        if (properties == null) {
+            return Map.of();
+        }
+
+        Map<String, Object> expected = new HashMap<>();
+        for (Map.Entry<String, Object> property : properties.entrySet()) {
+            String key = property.getKey();
+            Object value = property.getValue();
+            if (CommandProperties.isRelative(key, value)) {
+                // TOGGLE ON/OFF, brightness_step ise brightness olarak raporlanır; raporlanan değer bilinemez
+                expected.putIfAbsent(CommandProperties.target(key), ANY);
+            } else if (!(value instanceof Map<?, ?>)) {
+                // color {"hex": ...} gibi iç içe değerler cihaz tarafından başka biçimde raporlanır, beklenmez
+                expected.put(key, value);
+            }
+        }
+        return expected;
+    }
+
+    private static boolean confirms(Map<String, Object> expected, Map<String, Object> reported) {
+        boolean any = false;
+        for (Map.Entry<String, Object> property : expected.entrySet()) {
+            if (!reported.containsKey(property.getKey())) {
+                continue;
+            }
+            if (!sameValue(property.getValue(), reported.get(property.getKey()))) {
+                return false;
+            }
+            any = true;
+        }
+        return any;
+    }
+
+    private static boolean sameValue(Object expected, Object reported) {
+        if (expected == ANY) {
+            return true;
+        }
+        if (expected instanceof Number number && reported instanceof Number other) {
+            return Double.compare(number.doubleValue(), other.doubleValue()) == 0;
+        }
+        if (expected instanceof String text && reported instanceof String other) {
+            return text.equalsIgnoreCase(other);
+        }
+        return expected == null ? reported == null : expected.equals(reported);
+    }
+
+    /**
+     * @return whether this call finished the command; a command is finished only once
+     */
+    private boolean finish(Pending pending, CommandStatus status, Long latencyMs, String error) {
+        CommandDelivery delivery = pending.toDelivery(status, latencyMs, error);
+        if (!pending.future.complete(delivery)) {
+            return false;
+        }
+
+        deliveryCache.put(pending.id, delivery);
+        pendingById.remove(pending.id);
+        unlink(pending);
+        log.debug("Command {} to {} {}{}", pending.commandName, pending.deviceName, status,
+            latencyMs != null ? " after " + latencyMs + " ms" : "");
+        return true;
+    }
+
+    private void unlink(Pending pending) {
+        pendingByDevice.computeIfPresent(pending.deviceName, (key, list) -> {
+            List<Pending> next = new ArrayList<>(list);
+            next.remove(pending);
+            return next.isEmpty() ? null : List.copyOf(next);
+        });
+        HashedTimingWheel.Timeout timeout = pending.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        wheel.close();
+    }
+
+    private static final class Pending {
+        private final long id;
+        private final String deviceName;
+        private final String modelId;
+        private final String commandName;
+        private final Map<String, Object> expected;
+        private final CompletableFuture<CommandDelivery> future = new CompletableFuture<>();
+        private volatile Long sentAt;
+        private volatile long startNanos;
+        private volatile HashedTimingWheel.Timeout timeout;
+
+        private Pending(long id, String deviceName, String modelId, String commandName,
+                        Map<String, Object> expected) {
+            this.id = id;
+            this.deviceName = deviceName;
+            this.modelId = modelId;
+            this.commandName = commandName;
+            this.expected = expected;
+        }
+
+        CommandDelivery toDelivery(CommandStatus status, Long latencyMs, String error) {
+            return new CommandDelivery(id, deviceName, commandName, status, sentAt, latencyMs, error);
+        }
+    }
+}
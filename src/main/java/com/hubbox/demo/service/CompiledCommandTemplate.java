@@ -0,0 +1,137 @@
+package com.hubbox.demo.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@code commandTemplate} compiled once into literal byte segments and one hole per top-level field of the
+ * template object: {@code {"state":} hole {@code ,"brightness":} hole {@code }}. Rendering fills each hole with the
+ * parameter of the same name, or with the template's own value when the parameter is absent, and copies everything
+ * into one exactly sized array. A parameter is written with its own JSON type: integers stay integers, floating point
+ * numbers are written as such, booleans as booleans, {@code null} as null and anything else as a string. Parameters
+ * that are not fields of the template are ignored. Templates that are not a JSON object are sent as they are.
+ */
+public final class CompiledCommandTemplate {
+    private static final JsonStringEncoder ENCODER = JsonStringEncoder.getInstance();
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte QUOTE = '"';
+
+    private final byte[] raw;
+    private final byte[][] literals;
+    private final Hole[] holes;
+
+    private CompiledCommandTemplate(byte[] raw, byte[][] literals, Hole[] holes) {
+        this.raw = raw;
+        this.literals = literals;
+        this.holes = holes;
+    }
+
+    public static CompiledCommandTemplate compile(String template, ObjectMapper objectMapper) {
+        byte[] raw = template.getBytes(StandardCharsets.UTF_8);
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(template);
+        } catch (JsonProcessingException e) {
+            node = null;
+        }
+        if (node == null || !node.isObject()) {
+            return new CompiledCommandTemplate(raw, new byte[][] {raw}, new Hole[0]);
+        }
+
+        List<byte[]> literals = new ArrayList<>();
+        List<Hole> holes = new ArrayList<>();
+        StringBuilder literal = new StringBuilder("{");
+        Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!holes.isEmpty()) {
+                literal.append(',');
+            }
+            literal.append('"').append(ENCODER.quoteAsString(field.getKey())).append("\":");
+            literals.add(literal.toString().getBytes(StandardCharsets.UTF_8));
+            literal.setLength(0);
+            try {
+                holes.add(new Hole(field.getKey(), objectMapper.writeValueAsBytes(field.getValue())));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Template value cannot be serialized: " + field.getKey(), e);
+            }
+        }
+        literal.append('}');
+        literals.add(literal.toString().getBytes(StandardCharsets.UTF_8));
+        return new CompiledCommandTemplate(raw, literals.toArray(byte[][]::new), holes.toArray(Hole[]::new));
+    }
+
+    public byte[] render(Map<String, Object> parameters) {
+        if (parameters == null || parameters.isEmpty() || holes.length == 0) {
+            return raw;
+        }
+
+        byte[][] values = new byte[holes.length][];
+        int length = 0;
+        for (byte[] literal : literals) {
+            length += literal.length;
+        }
+        for (int i = 0; i < holes.length; i++) {
+            Object value = parameters.get(holes[i].name());
+            values[i] = value != null || parameters.containsKey(holes[i].name()) ? encode(value)
+                : holes[i].defaultValue();
+            length += values[i].length;
+        }
+
+        byte[] buffer = new byte[length];
+        int position = 0;
+        for (int i = 0; i < holes.length; i++) {
+            System.arraycopy(literals[i], 0, buffer, position, literals[i].length);
+            position += literals[i].length;
+            System.arraycopy(values[i], 0, buffer, position, values[i].length);
+            position += values[i].length;
+        }
+        byte[] last = literals[holes.length];
+        System.arraycopy(last, 0, buffer, position, last.length);
+        return buffer;
+    }
+
+    private static byte[] encode(Object value) {
+        if (value == null) {
+            return NULL;
+        }
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte
+            || value instanceof BigInteger) {
+            return value.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toString().getBytes(StandardCharsets.US_ASCII);
+        }
+        if (value instanceof Number number && Double.isFinite(number.doubleValue())) {
+            return (value instanceof Float ? value.toString() : Double.toString(number.doubleValue()))
+                .getBytes(StandardCharsets.US_ASCII);
+        }
+        if (value instanceof Boolean bool) {
+            return bool ? TRUE : FALSE;
+        }
+        return quote(String.valueOf(value));
+    }
+
+    private static byte[] quote(String value) {
+        byte[] escaped = ENCODER.quoteAsUTF8(value);
+        byte[] quoted = new byte[escaped.length + 2];
+        quoted[0] = QUOTE;
+        System.arraycopy(escaped, 0, quoted, 1, escaped.length);
+        quoted[quoted.length - 1] = QUOTE;
+        return quoted;
+    }
+
+    private record Hole(String name, byte[] defaultValue) {
+    }
+}
@@ -0,0 +1,33 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.dto.AggregationSpec;
+import com.hubbox.demo.dto.ComparisonOperator;
+import java.util.Map;
+import java.util.function.DoublePredicate;
+
+/**
+ * A {@link com.hubbox.demo.dto.DeviceCriteria} whose constant has been normalized to a {@code Double},
+ * {@code Boolean} or interned {@code String} and whose comparison has been specialized to that type. Numeric
+ * constants also get a {@link #numericPredicate()}, used for window aggregates; {@link #hysteresis()} is the rule's
+ * band for numeric thresholds, zero otherwise.
+ */
+public record CompiledCriterion(
+    String deviceName,
+    String field,
+    ComparisonOperator operator,
+    Object constant,
+    AggregationSpec aggregation,
+    double hysteresis,
+    Predicate predicate,
+    DoublePredicate numericPredicate
+) {
+    public boolean test(Map<String, Object> data) {
+        Object actual = data.get(field);
+        return actual != null && predicate.test(actual);
+    }
+
+    @FunctionalInterface
+    public interface Predicate {
+        boolean test(Object actual);
+    }
+}
@@ -0,0 +1,26 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.dto.RuleFiring;
+import com.hubbox.demo.dto.RuleTrigger;
+import com.hubbox.demo.entities.DeviceRuleEntity;
+import com.hubbox.demo.util.CronExpression;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load-time form of a {@link DeviceRuleEntity}: criteria are compiled and grouped by the device they read. Scheduled
+ * rules carry their {@link RuleTrigger}, and {@code cron} is its parsed expression for {@code CRON} triggers.
+ */
+public record CompiledRule(
+    DeviceRuleEntity rule,
+    List<String> requiredDevices,
+    Long maxTimeDifferenceMs,
+    Map<String, List<CompiledCriterion>> criteriaByDevice,
+    RuleFiring firing,
+    RuleTrigger trigger,
+    CronExpression cron
+) {
+    public Long id() {
+        return rule.getId();
+    }
+}
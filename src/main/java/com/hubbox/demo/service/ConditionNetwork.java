@@ -0,0 +1,426 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.dto.AggregationSpec;
+import com.hubbox.demo.dto.ComparisonOperator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Rete-style discrimination network over the compiled rule set. Every distinct {@code (device, field, operator,
+ * value)} criterion becomes one {@link AlphaNode} shared by all rules that use it; an update evaluates the alphas of
+ * the reporting device once and only touches the {@link RuleNode}s of the alphas whose truth value flipped. A rule
+ * node keeps the number of its alphas that currently hold, so checking whether a rule matches is O(1). Numeric
+ * threshold alphas are not scanned at all: a {@link ThresholdIndex} per {@code (device, field)} locates the ones
+ * the new reading crossed. Aggregated criteria read a {@link SlidingWindow} per {@code (device, field, window)} that
+ * is shared by every alpha over it and carried over from the previous network, so rule changes keep the history.
+ * Each rule node also owns the {@link SequenceMatcher} of its device sequence and the {@link FiringGate} of its
+ * firing settings, both carried over from the previous network while those settings are unchanged.
+ *
+ * <p>Alpha nodes of a device are only written by the thread that processes that device's events (the event
+ * pipeline keeps a device on one lane); rule nodes span devices and count atomically. The network is immutable in
+ * shape: rule changes build a new one, seeded from the devices' last reported data.
+ */
+public class ConditionNetwork {
+    static final ConditionNetwork EMPTY = new ConditionNetwork(Map.of(), Map.of(), Map.of(), 0, 0);
+
+    private final Map<String, DeviceNodes> devices;
+    private final Map<Long, RuleNode> rules;
+    private final Map<WindowKey, SlidingWindow> windows;
+    private final int alphaCount;
+    private final int thresholdAlphaCount;
+
+    private ConditionNetwork(Map<String, DeviceNodes> devices, Map<Long, RuleNode> rules,
+                             Map<WindowKey, SlidingWindow> windows, int alphaCount, int thresholdAlphaCount) {
+        this.devices = devices;
+        this.rules = rules;
+        this.windows = windows;
+        this.alphaCount = alphaCount;
+        this.thresholdAlphaCount = thresholdAlphaCount;
+    }
+
+    static ConditionNetwork build(Collection<CompiledRule> compiledRules,
+                                  Function<String, Map<String, Object>> lastData, ConditionNetwork previous) {
+        Map<AlphaKey, AlphaNode> alphas = new LinkedHashMap<>();
+        Map<Long, RuleNode> rules = new HashMap<>();
+        Map<WindowKey, SlidingWindow> windows = new HashMap<>();
+
+        for (CompiledRule rule : compiledRules) {
+            // Sırada olmayan cihazların kriterleri hiç değerlendirilmez
+            Map<AlphaKey, CompiledCriterion> criteria = new LinkedHashMap<>();
+            for (String device : new LinkedHashSet<>(rule.requiredDevices())) {
+                rule.criteriaByDevice().getOrDefault(device, List.of())
+                    .forEach(criterion -> criteria.putIfAbsent(AlphaKey.of(criterion), criterion));
+            }
+
+            RuleNode ruleNode = new RuleNode(rule, criteria.size(), matcher(rule, previous), gate(rule, previous));
+            rules.put(rule.id(), ruleNode);
+            criteria.forEach((key, criterion) -> {
+                AlphaNode alpha = alphas.computeIfAbsent(key, k -> new AlphaNode(k, criterion,
+                    window(criterion, windows, previous)));
+                alpha.rules.add(ruleNode);
+                ruleNode.alphasByDevice.computeIfAbsent(key.deviceName(), k -> new ArrayList<>()).add(alpha);
+            });
+        }
+        alphas.values().forEach(AlphaNode::seal);
+
+        Map<String, List<AlphaNode>> byDevice = new HashMap<>();
+        alphas.values().forEach(alpha -> byDevice.computeIfAbsent(alpha.key.deviceName(), k -> new ArrayList<>())
+            .add(alpha));
+
+        Map<String, DeviceNodes> devices = new HashMap<>();
+        int thresholdAlphaCount = 0;
+        for (Map.Entry<String, List<AlphaNode>> entry : byDevice.entrySet()) {
+            Map<String, Object> data = lastData.apply(entry.getKey());
+            DeviceNodes nodes = DeviceNodes.of(entry.getValue(), data != null ? data : Map.of(), windows);
+            devices.put(entry.getKey(), nodes);
+            thresholdAlphaCount += entry.getValue().size() - nodes.scanned().length;
+        }
+
+        return new ConditionNetwork(Map.copyOf(devices), Map.copyOf(rules), Map.copyOf(windows), alphas.size(),
+            thresholdAlphaCount);
+    }
+
+    private static SequenceMatcher matcher(CompiledRule rule, ConditionNetwork previous) {
+        RuleNode existing = previous.rules.get(rule.id());
+        if (existing != null && existing.matcher.matches(rule.requiredDevices(), rule.maxTimeDifferenceMs())) {
+            return existing.matcher;
+        }
+        return new SequenceMatcher(rule.requiredDevices(), rule.maxTimeDifferenceMs());
+    }
+
+    private static FiringGate gate(CompiledRule rule, ConditionNetwork previous) {
+        RuleNode existing = previous.rules.get(rule.id());
+        if (existing != null && existing.gate.matches(rule.firing())) {
+            return existing.gate;
+        }
+        return new FiringGate(rule.firing());
+    }
+
+    private static SlidingWindow window(CompiledCriterion criterion, Map<WindowKey, SlidingWindow> windows,
+                                        ConditionNetwork previous) {
+        if (criterion.aggregation() == null) {
+            return null;
+        }
+        WindowKey key = WindowKey.of(criterion);
+        return windows.computeIfAbsent(key, k -> {
+            SlidingWindow existing = previous.windows.get(k);
+            return existing != null ? existing : new SlidingWindow(k.windowMs(), k.maxSamples());
+        });
+    }
+
+    /**
+     * Adds the device's numeric readings to the sliding windows over them, before {@link #apply}. Windows shared with
+     * {@code recorded}, a network the same update was already recorded in, are skipped, so each reading lands in a
+     * window once even when the rule set is swapped while the update is applied.
+     *
+     * @param costs nanoseconds per rule id of a profiled update, or {@code null}; see {@link #apply}
+     */
+    public void record(String deviceName, Map<String, Object> data, long timestamp, ConditionNetwork recorded,
+                       Map<Long, Long> costs) {
+        DeviceNodes nodes = devices.get(deviceName);
+        if (nodes == null) {
+            return;
+        }
+
+        for (WindowBinding binding : nodes.windows()) {
+            if (recorded.windows.get(binding.key()) == binding.window()) {
+                continue;
+            }
+            long start = costs != null ? System.nanoTime() : 0;
+            if (data.get(binding.key().field()) instanceof Number number && !Double.isNaN(number.doubleValue())) {
+                binding.window().add(timestamp, number.doubleValue());
+            } else {
+                binding.window().expire(timestamp);
+            }
+            if (costs != null) {
+                charge(costs, binding.rules(), System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the alphas of the device against its new data and propagates flipped results to the rule nodes.
+     * For a profiled update the time spent on each alpha, threshold index and window is split evenly across the rules
+     * that read it and added to their entry in {@code costs}.
+     *
+     * @param costs nanoseconds per rule id of a profiled update, or {@code null}
+     * @return number of alpha nodes whose truth value changed
+     */
+    public int apply(String deviceName, Map<String, Object> data, Map<Long, Long> costs) {
+        DeviceNodes nodes = devices.get(deviceName);
+        if (nodes == null) {
+            return 0;
+        }
+
+        int flipped = 0;
+        for (AlphaNode alpha : nodes.scanned()) {
+            long start = costs != null ? System.nanoTime() : 0;
+            if (alpha.update(alpha.evaluate(data))) {
+                flipped++;
+            }
+            if (costs != null) {
+                charge(costs, alpha.successors, System.nanoTime() - start);
+            }
+        }
+        ThresholdIndex[] thresholds = nodes.thresholds();
+        for (int i = 0; i < thresholds.length; i++) {
+            long start = costs != null ? System.nanoTime() : 0;
+            flipped += thresholds[i].update(data.get(thresholds[i].field()));
+            if (costs != null) {
+                charge(costs, nodes.thresholdRules()[i], System.nanoTime() - start);
+            }
+        }
+        return flipped;
+    }
+
+    private static void charge(Map<Long, Long> costs, RuleNode[] rules, long nanos) {
+        if (rules.length == 0) {
+            return;
+        }
+        long share = nanos / rules.length;
+        for (RuleNode rule : rules) {
+            costs.merge(rule.rule.id(), share, Long::sum);
+        }
+    }
+
+    public boolean isSatisfied(Long ruleId) {
+        RuleNode node = rules.get(ruleId);
+        return node != null && node.isSatisfied();
+    }
+
+    /**
+     * Feeds a device event, already applied to the alphas, into the rule's sequence matcher. The event only counts
+     * if the rule's criteria on that device hold.
+     *
+     * @return {@code true} if the event completed the rule's device sequence within its time limit
+     */
+    public boolean advance(Long ruleId, String deviceName, long timestamp) {
+        RuleNode node = rules.get(ruleId);
+        return node != null && node.matcher.advance(deviceName, timestamp, node.isSatisfiedFor(deviceName));
+    }
+
+    /**
+     * {@link #advance} followed by the rule's {@link FiringGate}. Scheduled rules never fire from device events.
+     */
+    FiringGate.Outcome fire(Long ruleId, String deviceName, long timestamp) {
+        RuleNode node = rules.get(ruleId);
+        if (node == null || node.rule.trigger() != null
+            || !node.matcher.advance(deviceName, timestamp, node.isSatisfiedFor(deviceName))) {
+            return FiringGate.Outcome.NO_MATCH;
+        }
+        return node.gate.tryFire(timestamp);
+    }
+
+    /**
+     * Fires a scheduled rule at its trigger time if its criteria hold. The criteria of {@code watchedDevice}, if
+     * given, describe the activity an inactivity trigger waited for and are left out.
+     */
+    FiringGate.Outcome fireScheduled(Long ruleId, String watchedDevice, long timestamp) {
+        RuleNode node = rules.get(ruleId);
+        if (node == null || !node.isSatisfiedExcept(watchedDevice)) {
+            return FiringGate.Outcome.NO_MATCH;
+        }
+        return node.gate.tryFire(timestamp);
+    }
+
+    boolean isSatisfiedFor(Long ruleId, String deviceName) {
+        RuleNode node = rules.get(ruleId);
+        return node != null && node.isSatisfiedFor(deviceName);
+    }
+
+    public int ruleCount() {
+        return rules.size();
+    }
+
+    public int alphaCount() {
+        return alphaCount;
+    }
+
+    public int thresholdAlphaCount() {
+        return thresholdAlphaCount;
+    }
+
+    public int windowCount() {
+        return windows.size();
+    }
+
+    record AlphaKey(String deviceName, String field, ComparisonOperator operator, Object constant,
+                    AggregationSpec aggregation, double hysteresis) {
+        static AlphaKey of(CompiledCriterion criterion) {
+            return new AlphaKey(criterion.deviceName(), criterion.field(), criterion.operator(),
+                criterion.constant(), criterion.aggregation(), criterion.hysteresis());
+        }
+    }
+
+    record WindowKey(String deviceName, String field, long windowMs, int maxSamples) {
+        static WindowKey of(CompiledCriterion criterion) {
+            return new WindowKey(criterion.deviceName(), criterion.field(), criterion.aggregation().windowMs(),
+                criterion.aggregation().effectiveMaxSamples());
+        }
+    }
+
+    private record WindowBinding(WindowKey key, SlidingWindow window, RuleNode[] rules) {
+    }
+
+    /**
+     * @param thresholdRules the rules reading each threshold index, at the index's position
+     */
+    private record DeviceNodes(AlphaNode[] scanned, ThresholdIndex[] thresholds, RuleNode[][] thresholdRules,
+                               WindowBinding[] windows) {
+        static DeviceNodes of(List<AlphaNode> alphas, Map<String, Object> seed,
+                              Map<WindowKey, SlidingWindow> allWindows) {
+            List<AlphaNode> scanned = new ArrayList<>();
+            Map<String, List<AlphaNode>> thresholdsByField = new LinkedHashMap<>();
+            for (AlphaNode alpha : alphas) {
+                if (ThresholdIndex.accepts(alpha)) {
+                    thresholdsByField.computeIfAbsent(alpha.key.field(), k -> new ArrayList<>()).add(alpha);
+                } else {
+                    alpha.update(alpha.evaluate(seed));
+                    scanned.add(alpha);
+                }
+            }
+
+            List<ThresholdIndex> thresholds = new ArrayList<>();
+            List<RuleNode[]> thresholdRules = new ArrayList<>();
+            thresholdsByField.forEach((field, nodes) -> {
+                thresholds.add(ThresholdIndex.of(field, nodes, seed.get(field)));
+                thresholdRules.add(successors(nodes));
+            });
+
+            String deviceName = alphas.get(0).key.deviceName();
+            WindowBinding[] windows = allWindows.entrySet().stream()
+                .filter(entry -> entry.getKey().deviceName().equals(deviceName))
+                .map(entry -> new WindowBinding(entry.getKey(), entry.getValue(), successors(alphas.stream()
+                    .filter(alpha -> alpha.window == entry.getValue())
+                    .toList())))
+                .toArray(WindowBinding[]::new);
+            return new DeviceNodes(scanned.toArray(AlphaNode[]::new), thresholds.toArray(ThresholdIndex[]::new),
+                thresholdRules.toArray(RuleNode[][]::new), windows);
+        }
+
+        private static RuleNode[] successors(List<AlphaNode> alphas) {
+            Set<RuleNode> rules = new LinkedHashSet<>();
+            alphas.forEach(alpha -> rules.addAll(List.of(alpha.successors)));
+            return rules.toArray(RuleNode[]::new);
+        }
+    }
+
+    static final class AlphaNode {
+        private final AlphaKey key;
+        private final CompiledCriterion criterion;
+        private final SlidingWindow window;
+        private final List<RuleNode> rules = new ArrayList<>();
+        private RuleNode[] successors;
+        private volatile boolean satisfied;
+
+        private AlphaNode(AlphaKey key, CompiledCriterion criterion, SlidingWindow window) {
+            this.key = key;
+            this.criterion = criterion;
+            this.window = window;
+        }
+
+        CompiledCriterion criterion() {
+            return criterion;
+        }
+
+        private boolean evaluate(Map<String, Object> data) {
+            if (window == null) {
+                return criterion.test(data);
+            }
+            double aggregate = window.aggregate(criterion.aggregation().function());
+            return !Double.isNaN(aggregate) && holds(aggregate);
+        }
+
+        /**
+         * Numeric comparison with the criterion's hysteresis: inside the band between the threshold and the
+         * switch-off point the previous truth value is kept.
+         */
+        boolean holds(double actual) {
+            double threshold = criterion.constant() instanceof Double number ? number : Double.NaN;
+            double band = criterion.hysteresis();
+            return switch (criterion.operator()) {
+                case GREATER_THAN -> actual > threshold || (satisfied && actual > threshold - band);
+                case GREATER_THAN_OR_EQUALS -> actual >= threshold || (satisfied && actual >= threshold - band);
+                case LESS_THAN -> actual < threshold || (satisfied && actual < threshold + band);
+                case LESS_THAN_OR_EQUALS -> actual <= threshold || (satisfied && actual <= threshold + band);
+                default -> criterion.numericPredicate() != null && criterion.numericPredicate().test(actual);
+            };
+        }
+
+        /**
+         * @return whether the truth value flipped
+         */
+        boolean update(boolean now) {
+            if (now == satisfied) {
+                return false;
+            }
+            satisfied = now;
+            int delta = now ? 1 : -1;
+            for (RuleNode rule : successors) {
+                rule.satisfied.addAndGet(delta);
+                if (!now) {
+                    rule.gate.rearm();
+                }
+            }
+            return true;
+        }
+
+        private void seal() {
+            successors = rules.toArray(RuleNode[]::new);
+            rules.clear();
+        }
+    }
+
+    static final class RuleNode {
+        private final CompiledRule rule;
+        private final int required;
+        private final SequenceMatcher matcher;
+        private final FiringGate gate;
+        private final Map<String, List<AlphaNode>> alphasByDevice = new HashMap<>();
+        private final AtomicInteger satisfied = new AtomicInteger();
+
+        private RuleNode(CompiledRule rule, int required, SequenceMatcher matcher, FiringGate gate) {
+            this.rule = rule;
+            this.required = required;
+            this.matcher = matcher;
+            this.gate = gate;
+        }
+
+        CompiledRule rule() {
+            return rule;
+        }
+
+        boolean isSatisfied() {
+            return satisfied.get() == required;
+        }
+
+        private boolean isSatisfiedFor(String deviceName) {
+            for (AlphaNode alpha : alphasByDevice.getOrDefault(deviceName, List.of())) {
+                if (!alpha.satisfied) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isSatisfiedExcept(String deviceName) {
+            if (deviceName == null) {
+                return isSatisfied();
+            }
+            for (Map.Entry<String, List<AlphaNode>> entry : alphasByDevice.entrySet()) {
+                if (!entry.getKey().equals(deviceName) && !isSatisfiedFor(entry.getKey())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.hubbox.demo.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.github.benmanes.caffeine.cache.Cache;
+import com.hubbox.demo.dto.CommandKey;
+import com.hubbox.demo.dto.CommandPriority;
+import com.hubbox.demo.dto.MqttCommand;
+import com.hubbox.demo.dto.request.BulkCommandRequest;
 import com.hubbox.demo.dto.request.DeviceCommandCreateRequest;
 import com.hubbox.demo.dto.request.DeviceCommandUpdateRequest;
 import com.hubbox.demo.dto.request.SendDeviceCommandRequest;
+import com.hubbox.demo.dto.response.BridgeGroup;
+import com.hubbox.demo.dto.response.BulkCommandResponse;
+import com.hubbox.demo.dto.response.CommandDelivery;
 import com.hubbox.demo.dto.response.DeviceCommandResponse;
 import com.hubbox.demo.dto.response.DeviceResponse;
 import com.hubbox.demo.entities.DeviceCommandEntity;
@@ -16,11 +20,17 @@ import com.hubbox.demo.exceptions.CommandExecutionException;
 import com.hubbox.demo.exceptions.RecordNotFoundException;
 import com.hubbox.demo.mapper.DeviceCommandMapper;
 import com.hubbox.demo.repository.DeviceCommandRepository;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import lombok.extern.slf4j.Slf4j;
@@ -30,22 +40,33 @@ import lombok.extern.slf4j.Slf4j;
 public class DeviceCommandService {
     private final DeviceCommandRepository commandRepository;
     private final DeviceCommandMapper mapper;
-    private final MqttService mqttService;
+    private final CommandScheduler commandScheduler;
     private final DeviceService deviceService;
-    private final ObjectMapper objectMapper;
-    private final Cache<String, List<DeviceCommandEntity>> commandCache;
+    private final Cache<CommandKey, Boolean> missingCommandCache;
+    private final CommandTracker commandTracker;
+    private final CommandCatalog catalog;
 
     @Inject
     public DeviceCommandService(DeviceCommandRepository commandRepository,
-                                DeviceCommandMapper mapper, MqttService mqttService,
+                                DeviceCommandMapper mapper, CommandScheduler commandScheduler,
                                 DeviceService deviceService, ObjectMapper objectMapper,
-                                Cache<String, List<DeviceCommandEntity>> commandCache) {
+                                Cache<CommandKey, Boolean> missingCommandCache,
+                                CommandTracker commandTracker) {
         this.commandRepository = commandRepository;
         this.mapper = mapper;
-        this.mqttService = mqttService;
+        this.commandScheduler = commandScheduler;
         this.deviceService = deviceService;
-        this.objectMapper = objectMapper;
-        this.commandCache = commandCache;
+        this.missingCommandCache = missingCommandCache;
+        this.commandTracker = commandTracker;
+        this.catalog = new CommandCatalog(objectMapper);
+    }
+
+    /**
+     * Loads the whole command catalog in one query, so the first commands do not wait for it.
+     */
+    public void start() {
+        CommandCatalog loaded = getCatalog();
+        log.info("Command catalog loaded: {} commands", loaded.size());
     }
 
     public DeviceCommandResponse createCommand(DeviceCommandCreateRequest request) {
@@ -54,7 +75,8 @@ public class DeviceCommandService {
             Long id = commandRepository.create(command);
             command.setId(id);
 
-            commandCache.invalidate(request.modelId());
+            catalog.put(command);
+            missingCommandCache.invalidate(new CommandKey(command.getModelId(), command.getCommandName()));
 
             return mapper.toResponse(command);
         } catch (SQLException e) {
@@ -84,13 +106,7 @@ public class DeviceCommandService {
 
     public List<DeviceCommandResponse> getCommandsByModel(String modelId) {
         try {
-            List<DeviceCommandEntity> cachedCommands = commandCache.get(modelId, key ->
-                Optional.ofNullable(findCommandsByModelId(modelId))
-                    .filter(list -> !list.isEmpty())
-                    .orElse(Collections.emptyList())
-            );
-
-            return cachedCommands.stream().map(mapper::toResponse).toList();
+            return getCatalog().commandsFor(modelId).stream().map(mapper::toResponse).toList();
         } catch (Exception e) {
             log.error("Error getting commands for model: {}", modelId, e);
             return Collections.emptyList();
@@ -103,7 +119,9 @@ public class DeviceCommandService {
 
             mapper.updateEntityFromRequest(request, existingCommand);
             commandRepository.update(id, existingCommand);
-            commandCache.invalidate(existingCommand.getModelId());
+            catalog.put(existingCommand);
+            missingCommandCache.invalidate(
+                new CommandKey(existingCommand.getModelId(), existingCommand.getCommandName()));
 
             return mapper.toResponse(existingCommand);
         } catch (SQLException | RecordNotFoundException e) {
@@ -116,7 +134,7 @@ public class DeviceCommandService {
         try {
             DeviceCommandEntity existingCommand = findCommandById(id);
             commandRepository.delete(id);
-            commandCache.invalidate(existingCommand.getModelId());
+            catalog.remove(existingCommand.getId());
         } catch (SQLException | RecordNotFoundException e) {
             log.error("Error deleting command", e);
             throw new BaseRuntimeException("Failed newName delete command", e);
@@ -124,28 +142,40 @@ public class DeviceCommandService {
     }
 
     public String getCommandTemplate(String modelId, String commandName) {
-        return getCommandsByModel(modelId).stream()
-            .filter(cmd -> cmd.commandName().equals(commandName))
-            .findFirst()
-            .map(DeviceCommandResponse::commandTemplate)
-            .orElseThrow(() -> new RuntimeException(
-                "Command not found: " + commandName + " for model: " + modelId));
+        return findCommand(new CommandKey(modelId, commandName)).command().getCommandTemplate();
+    }
+
+    public CommandDelivery executeCommand(SendDeviceCommandRequest request) {
+        return executeCommand(request, CommandPriority.USER);
     }
 
-    public void executeCommand(SendDeviceCommandRequest request) {
+    /**
+     * Queues the command on the {@link CommandScheduler} and starts tracking its delivery. The scheduler completes
+     * the submit future once the dispatcher has published the command, which is when the tracker starts waiting for
+     * the device to confirm it.
+     *
+     * @return the delivery as it stands right after the command was queued, usually {@code QUEUED}
+     */
+    public CommandDelivery executeCommand(SendDeviceCommandRequest request, CommandPriority priority) {
         try {
-            DeviceResponse device = deviceService.getDeviceById(request.deviceName());
+            DeviceResponse device = deviceService.getDeviceSummary(request.deviceName());
 
             String modelId = device.modelId();
-            String commandTemplate = getCommandTemplate(modelId, request.commandName());
+            CompiledCommandTemplate commandTemplate = findCommand(new CommandKey(modelId, request.commandName()))
+                .template();
 
-            String finalCommand = replaceCommandParameters(commandTemplate, request.parameters());
+            byte[] finalCommand = commandTemplate.render(request.parameters());
 
             String topic = String.format("%s/set", device.friendlyName());
-            log.debug("Sending command newName device: {} on topic: {}, command: {}",
-                request.deviceName(), topic, finalCommand);
+            if (log.isDebugEnabled()) {
+                log.debug("Sending command newName device: {} on topic: {}, command: {}",
+                    request.deviceName(), topic, new String(finalCommand, StandardCharsets.UTF_8));
+            }
 
-            mqttService.sendCommand(topic, finalCommand);
+            long id = commandTracker.track(device, request.commandName(), finalCommand);
+            commandScheduler.submit(new MqttCommand(topic, finalCommand), priority)
+                .whenComplete((result, throwable) -> published(List.of(id), throwable));
+            return commandTracker.getDelivery(id).orElseThrow();
 
         } catch (Exception e) {
             log.error("Error sending command newName device: {}", request.deviceName(), e);
@@ -153,34 +183,175 @@ public class DeviceCommandService {
         }
     }
 
-    private String replaceCommandParameters(String template, Map<String, Object> parameters) {
-        if (parameters == null || parameters.isEmpty()) {
-            return template;
+    /**
+     * Sends one command to every selected device. The command is resolved and rendered once per model, devices that
+     * make up a whole zigbee2mqtt group and received the same payload are addressed with a single group {@code /set}
+     * (multicast on the Zigbee side), and all messages are queued at {@link CommandPriority#BULK}.
+     */
+    public BulkCommandResponse executeBulkCommand(BulkCommandRequest request) {
+        List<String> unknownDevices = new ArrayList<>();
+        List<DeviceResponse> devices = selectDevices(request, unknownDevices);
+
+        Map<String, byte[]> payloadByModel = new HashMap<>();
+        Map<String, byte[]> payloadByDevice = new LinkedHashMap<>();
+        Map<String, Long> commandIds = new LinkedHashMap<>();
+        List<String> unsupportedDevices = new ArrayList<>();
+        for (DeviceResponse device : devices) {
+            if (!payloadByModel.containsKey(device.modelId())) {
+                CommandCatalog.Entry entry = lookupCommand(new CommandKey(device.modelId(), request.commandName()));
+                payloadByModel.put(device.modelId(), entry != null ? entry.template().render(request.parameters())
+                    : null);
+            }
+            byte[] payload = payloadByModel.get(device.modelId());
+            if (payload == null) {
+                unsupportedDevices.add(device.friendlyName());
+            } else {
+                payloadByDevice.put(device.friendlyName(), payload);
+                commandIds.put(device.friendlyName(),
+                    commandTracker.track(device, request.commandName(), payload));
+            }
         }
 
-        try {
-            JsonNode templateNode = objectMapper.readTree(template);
-            ObjectNode commandNode = templateNode.deepCopy();
-
-            parameters.forEach((key, value) -> {
-                if (commandNode.has(key)) {
-                    if (value instanceof Number numVal) {
-                        commandNode.put(key, (numVal.doubleValue()));
-                    } else if (value instanceof Boolean boolVal) {
-                        commandNode.put(key, boolVal);
-                    } else {
-                        commandNode.put(key, value.toString());
-                    }
-                }
-            });
+        Map<MqttCommand, List<Long>> batch = new LinkedHashMap<>();
+        List<String> groups = new ArrayList<>();
+        int targeted = payloadByDevice.size();
+        List<BridgeGroup> candidates = new ArrayList<>(deviceService.getGroups());
+        candidates.sort(Comparator.comparingInt((BridgeGroup group) -> members(group).size()).reversed());
+        for (BridgeGroup group : candidates) {
+            byte[] payload = groupPayload(group, payloadByDevice);
+            if (payload != null) {
+                List<Long> memberIds = new ArrayList<>();
+                members(group).forEach(member -> deviceService.findDeviceByIeeeAddress(member.ieeeAddress())
+                    .filter(device -> payloadByDevice.remove(device.friendlyName()) != null)
+                    .ifPresent(device -> memberIds.add(commandIds.get(device.friendlyName()))));
+                batch.put(new MqttCommand(group.friendlyName() + "/set", payload), memberIds);
+                groups.add(group.friendlyName());
+            }
+        }
+        payloadByDevice.forEach((deviceName, payload) ->
+            batch.put(new MqttCommand(deviceName + "/set", payload), List.of(commandIds.get(deviceName))));
+
+        log.debug("Sending bulk command {} to {} devices in {} messages ({} groups)", request.commandName(),
+            targeted, batch.size(), groups.size());
+        batch.forEach((command, ids) -> commandScheduler.submit(command, CommandPriority.BULK)
+            .whenComplete((result, throwable) -> published(ids, throwable)));
+        return new BulkCommandResponse(targeted, batch.size(), groups, unknownDevices, unsupportedDevices,
+            commandIds);
+    }
+
+    public CommandDelivery getDelivery(long id) throws RecordNotFoundException {
+        return commandTracker.getDelivery(id)
+            .orElseThrow(() -> new RecordNotFoundException("Command delivery not found: " + id));
+    }
+
+    public CompletableFuture<CommandDelivery> whenDelivered(long id) {
+        return commandTracker.whenDone(id);
+    }
+
+    private void published(List<Long> ids, Throwable throwable) {
+        if (throwable != null) {
+            ids.forEach(id -> commandTracker.publishFailed(id, throwable));
+        } else {
+            ids.forEach(commandTracker::published);
+        }
+    }
+
+    private List<DeviceResponse> selectDevices(BulkCommandRequest request, List<String> unknownDevices) {
+        int selectors = (request.deviceNames() != null ? 1 : 0) + (request.modelId() != null ? 1 : 0)
+            + (request.groupName() != null ? 1 : 0);
+        if (selectors != 1) {
+            throw new BaseRuntimeException("Exactly one of deviceNames, modelId and groupName is required");
+        }
+        if (request.commandName() == null) {
+            throw new BaseRuntimeException("commandName is required");
+        }
+
+        if (request.modelId() != null) {
+            return deviceService.getDevicesByModel(request.modelId());
+        }
+
+        Map<String, DeviceResponse> devices = new LinkedHashMap<>();
+        if (request.deviceNames() != null) {
+            for (String deviceName : request.deviceNames()) {
+                deviceService.findDeviceSummary(deviceName).ifPresentOrElse(
+                    device -> devices.putIfAbsent(device.friendlyName(), device), () -> unknownDevices.add(deviceName));
+            }
+        } else {
+            BridgeGroup group = deviceService.findGroup(request.groupName())
+                .orElseThrow(() -> new BaseRuntimeException("Group not found: " + request.groupName()));
+            for (BridgeGroup.GroupMember member : members(group)) {
+                deviceService.findDeviceByIeeeAddress(member.ieeeAddress()).ifPresentOrElse(
+                    device -> devices.putIfAbsent(device.friendlyName(), device),
+                    () -> unknownDevices.add(member.ieeeAddress()));
+            }
+        }
+        return new ArrayList<>(devices.values());
+    }
+
+    /**
+     * @return the payload every member of the group is still waiting for, or {@code null} if any member is unknown,
+     *     not targeted or waiting for a different payload
+     */
+    private byte[] groupPayload(BridgeGroup group, Map<String, byte[]> payloadByDevice) {
+        if (group.friendlyName() == null || members(group).isEmpty()) {
+            return null;
+        }
+        byte[] payload = null;
+        for (BridgeGroup.GroupMember member : members(group)) {
+            byte[] memberPayload = deviceService.findDeviceByIeeeAddress(member.ieeeAddress())
+                .map(device -> payloadByDevice.get(device.friendlyName()))
+                .orElse(null);
+            if (memberPayload == null || (payload != null && !Arrays.equals(payload, memberPayload))) {
+                return null;
+            }
+            payload = memberPayload;
+        }
+        return payload;
+    }
+
+    private static List<BridgeGroup.GroupMember> members(BridgeGroup group) {
+        return group.members() != null ? group.members() : List.of();
+    }
+
+    private CommandCatalog.Entry findCommand(CommandKey key) {
+        CommandCatalog.Entry entry = lookupCommand(key);
+        if (entry == null) {
+            throw new RuntimeException("Command not found: " + key.commandName() + " for model: " + key.modelId());
+        }
+        return entry;
+    }
 
-            return objectMapper.writeValueAsString(commandNode);
-        } catch (JsonProcessingException e) {
-            log.error("Error processing command template", e);
-            throw new CommandExecutionException("Failed newName process command template", e);
+    /**
+     * A command missing from the catalog is looked up in the database once, in case it was added behind the
+     * service's back; if it is not there either, the miss is remembered for a short while.
+     */
+    private CommandCatalog.Entry lookupCommand(CommandKey key) {
+        CommandCatalog.Entry entry = getCatalog().find(key);
+        if (entry == null && missingCommandCache.getIfPresent(key) == null) {
+            findCommandsByModelId(key.modelId()).forEach(catalog::put);
+            entry = catalog.find(key);
+            if (entry == null) {
+                missingCommandCache.put(key, Boolean.TRUE);
+            }
         }
+        return entry;
     }
 
+    private CommandCatalog getCatalog() {
+        if (!catalog.isLoaded()) {
+            synchronized (catalog) {
+                if (!catalog.isLoaded()) {
+                    try {
+                        catalog.load(commandRepository.findAll());
+                    } catch (SQLException e) {
+                        log.error("Error loading command catalog", e);
+                        throw new BaseRuntimeException("Failed to load commands", e);
+                    }
+                }
+            }
+        }
+        return catalog;
+    }
 
     private List<DeviceCommandEntity> findCommandsByModelId(String modelId) {
         try {
@@ -0,0 +1,203 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.dto.response.BridgeGroup;
+import com.hubbox.demo.dto.response.DeviceResponse;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Copy-on-write device registry. Every change publishes a new immutable {@link Snapshot}, so readers on the
+ * ingest path resolve devices with a single volatile read and never contend with bridge updates.
+ *
+ * <p>Devices come from two sources: rows of the {@code devices} table, cached here by id once loaded, and the
+ * zigbee2mqtt {@code bridge/devices} payload, kept by IEEE address together with a content hash so a republish
+ * only touches the devices that actually changed.
+ *
+ * <p>zigbee2mqtt groups from {@code bridge/groups} are kept beside the snapshot by friendly name; they are
+ * republished as a whole and only read when commands are fanned out.
+ */
+public class DeviceRegistry {
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+    private volatile boolean databaseLoaded;
+    private volatile Map<String, BridgeGroup> groups = Map.of();
+
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    public Optional<RegisteredDevice> findByFriendlyName(String friendlyName) {
+        return Optional.ofNullable(current.get().byFriendlyName().get(friendlyName));
+    }
+
+    public Optional<RegisteredDevice> findByIeeeAddress(String ieeeAddress) {
+        return Optional.ofNullable(current.get().byIeeeAddress().get(ieeeAddress));
+    }
+
+    public List<RegisteredDevice> findByModelId(String modelId) {
+        return current.get().byModelId().getOrDefault(modelId, List.of());
+    }
+
+    public Optional<BridgeGroup> findGroup(String friendlyName) {
+        return Optional.ofNullable(groups.get(friendlyName));
+    }
+
+    public Collection<BridgeGroup> groups() {
+        return groups.values();
+    }
+
+    public void applyBridgeGroups(List<BridgeGroup> bridgeGroups) {
+        Map<String, BridgeGroup> byName = new HashMap<>();
+        bridgeGroups.stream()
+            .filter(group -> group.friendlyName() != null)
+            .forEach(group -> byName.putIfAbsent(group.friendlyName(), group));
+        groups = Map.copyOf(byName);
+    }
+
+    public boolean isDatabaseLoaded() {
+        return databaseLoaded;
+    }
+
+    public synchronized void loadDatabaseDevices(Collection<DeviceResponse> devices) {
+        Map<Long, RegisteredDevice> databaseDevices = new LinkedHashMap<>();
+        devices.forEach(device -> databaseDevices.put(device.id(), new RegisteredDevice(device, null)));
+        databaseLoaded = true;
+        publish(databaseDevices, current.get().bridgeDevices());
+    }
+
+    public synchronized void putDatabaseDevice(DeviceResponse device) {
+        Map<Long, RegisteredDevice> databaseDevices = new LinkedHashMap<>(current.get().databaseDevices());
+        databaseDevices.put(device.id(), new RegisteredDevice(device, null));
+        publish(databaseDevices, current.get().bridgeDevices());
+    }
+
+    public synchronized void removeDatabaseDevice(Long id) {
+        if (!current.get().databaseDevices().containsKey(id)) {
+            return;
+        }
+        Map<Long, RegisteredDevice> databaseDevices = new LinkedHashMap<>(current.get().databaseDevices());
+        databaseDevices.remove(id);
+        publish(databaseDevices, current.get().bridgeDevices());
+    }
+
+    /**
+     * Devices that differ from the current snapshot are decoded before the writer lock is taken, so a large
+     * republish does not hold up database updates. A device changed by a concurrent writer in between is decoded
+     * under the lock.
+     */
+    public BridgeDiff applyBridgeDevices(List<BridgeDevice> devices) {
+        Map<String, BridgeEntry> seen = current.get().bridgeDevices();
+        Map<String, BridgeEntry> decoded = new HashMap<>();
+        for (BridgeDevice device : devices) {
+            BridgeEntry existing = seen.get(device.key());
+            if (existing == null || existing.contentHash() != device.contentHash()) {
+                decoded.put(device.key(), new BridgeEntry(device.contentHash(), device.decoder().get()));
+            }
+        }
+        return applyDecodedBridgeDevices(devices, decoded);
+    }
+
+    private synchronized BridgeDiff applyDecodedBridgeDevices(List<BridgeDevice> devices,
+                                                              Map<String, BridgeEntry> decoded) {
+        Map<String, BridgeEntry> previous = current.get().bridgeDevices();
+        Map<String, BridgeEntry> next = new LinkedHashMap<>();
+        int added = 0;
+        int changed = 0;
+
+        for (BridgeDevice device : devices) {
+            BridgeEntry existing = previous.get(device.key());
+            if (existing != null && existing.contentHash() == device.contentHash()) {
+                next.put(device.key(), existing);
+                continue;
+            }
+            BridgeEntry entry = decoded.get(device.key());
+            if (entry == null || entry.contentHash() != device.contentHash()) {
+                entry = new BridgeEntry(device.contentHash(), device.decoder().get());
+            }
+            next.put(device.key(), entry);
+            if (existing == null) {
+                added++;
+            } else {
+                changed++;
+            }
+        }
+
+        int removed = (int) previous.keySet().stream().filter(key -> !next.containsKey(key)).count();
+        BridgeDiff diff = new BridgeDiff(added, removed, changed, next.size() - added - changed);
+        if (diff.hasChanges()) {
+            publish(current.get().databaseDevices(), next);
+        }
+        return diff;
+    }
+
+    public synchronized void clear() {
+        databaseLoaded = false;
+        current.set(Snapshot.EMPTY);
+        groups = Map.of();
+    }
+
+    private void publish(Map<Long, RegisteredDevice> databaseDevices, Map<String, BridgeEntry> bridgeDevices) {
+        current.set(Snapshot.of(current.get().version() + 1, databaseDevices, bridgeDevices));
+    }
+
+    public record BridgeDevice(String key, long contentHash, Supplier<RegisteredDevice> decoder) {
+    }
+
+    public record BridgeEntry(long contentHash, RegisteredDevice device) {
+    }
+
+    public record BridgeDiff(int added, int removed, int changed, int unchanged) {
+        public boolean hasChanges() {
+            return added > 0 || removed > 0 || changed > 0;
+        }
+    }
+
+    public record Snapshot(
+        long version,
+        List<RegisteredDevice> devices,
+        Map<Long, RegisteredDevice> databaseDevices,
+        Map<String, BridgeEntry> bridgeDevices,
+        Map<String, RegisteredDevice> byFriendlyName,
+        Map<String, RegisteredDevice> byIeeeAddress,
+        Map<String, List<RegisteredDevice>> byModelId
+    ) {
+        static final Snapshot EMPTY = of(0, Map.of(), Map.of());
+
+        static Snapshot of(long version, Map<Long, RegisteredDevice> databaseDevices,
+                           Map<String, BridgeEntry> bridgeDevices) {
+            List<RegisteredDevice> devices = new ArrayList<>(databaseDevices.size() + bridgeDevices.size());
+            devices.addAll(databaseDevices.values());
+            bridgeDevices.values().forEach(entry -> devices.add(entry.device()));
+
+            Map<String, RegisteredDevice> byFriendlyName = new HashMap<>();
+            Map<String, RegisteredDevice> byIeeeAddress = new HashMap<>();
+            Map<String, List<RegisteredDevice>> byModelId = new HashMap<>();
+
+            for (RegisteredDevice entry : devices) {
+                DeviceResponse device = entry.device();
+                if (device.friendlyName() != null) {
+                    byFriendlyName.putIfAbsent(device.friendlyName(), entry);
+                }
+                if (device.ieeeAddress() != null) {
+                    byIeeeAddress.putIfAbsent(device.ieeeAddress(), entry);
+                }
+                if (device.modelId() != null) {
+                    byModelId.computeIfAbsent(device.modelId(), key -> new ArrayList<>()).add(entry);
+                }
+            }
+            byModelId.replaceAll((key, value) -> List.copyOf(value));
+
+            return new Snapshot(version, List.copyOf(devices),
+                Collections.unmodifiableMap(new LinkedHashMap<>(databaseDevices)),
+                Collections.unmodifiableMap(new LinkedHashMap<>(bridgeDevices)),
+                Map.copyOf(byFriendlyName), Map.copyOf(byIeeeAddress), Map.copyOf(byModelId));
+        }
+    }
+}
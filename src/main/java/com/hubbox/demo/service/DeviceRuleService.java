@@ -3,15 +3,21 @@ package com.hubbox.demo.service;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import com.hubbox.demo.dto.DeviceCriteria;
-import com.hubbox.demo.dto.DeviceDataSnapshot;
+import com.hubbox.demo.config.RuleConfig;
+import com.hubbox.demo.dto.CommandPriority;
 import com.hubbox.demo.dto.RuleAction;
-import com.hubbox.demo.dto.RuleCondition;
+import com.hubbox.demo.dto.RuleProfileSort;
 import com.hubbox.demo.dto.request.ActivateRequest;
 import com.hubbox.demo.dto.request.DeviceRuleCreateRequest;
 import com.hubbox.demo.dto.request.DeviceRuleUpdateRequest;
+import com.hubbox.demo.dto.request.ReplayEvent;
+import com.hubbox.demo.dto.request.RuleReplayRequest;
 import com.hubbox.demo.dto.request.SendDeviceCommandRequest;
 import com.hubbox.demo.dto.response.DeviceRuleResponse;
+import com.hubbox.demo.dto.response.ReplayedAction;
+import com.hubbox.demo.dto.response.RuleEngineStats;
+import com.hubbox.demo.dto.response.RuleProfileReport;
+import com.hubbox.demo.dto.response.RuleReplayResponse;
 import com.hubbox.demo.entities.DeviceRuleEntity;
 import com.hubbox.demo.exceptions.BaseRuntimeException;
 import com.hubbox.demo.exceptions.RecordNotFoundException;
@@ -19,40 +25,58 @@ import com.hubbox.demo.listener.SensorEventListener;
 import com.hubbox.demo.mapper.DeviceRuleMapper;
 import com.hubbox.demo.repository.DeviceRuleRepository;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Singleton
-public class DeviceRuleService implements SensorEventListener {
+public class DeviceRuleService implements SensorEventListener, AutoCloseable {
     private static final String ALL_RULES_CACHE_KEY = "all";
-    private final Map<String, DeviceDataSnapshot> lastDeviceData = new ConcurrentHashMap<>();
     private final DeviceRuleRepository ruleRepository;
     private final DeviceCommandService deviceCommandService;
     private final PinService pinService;
     private final DeviceRuleMapper mapper;
     private final Cache<String, List<DeviceRuleEntity>> ruleCache;
+    private final RuleConfig ruleConfig;
+    private final RuleEngine ruleEngine;
 
     @Inject
     public DeviceRuleService(DeviceRuleRepository ruleRepository,
                              DeviceCommandService deviceCommandService, PinService pinService,
-                             DeviceRuleMapper mapper, Cache<String, List<DeviceRuleEntity>> ruleCache) {
+                             DeviceRuleMapper mapper, Cache<String, List<DeviceRuleEntity>> ruleCache,
+                             RuleConfig ruleConfig) {
         this.ruleRepository = ruleRepository;
         this.deviceCommandService = deviceCommandService;
         this.pinService = pinService;
         this.mapper = mapper;
         this.ruleCache = ruleCache;
+        this.ruleConfig = ruleConfig;
+        this.ruleEngine = new RuleEngine(ruleConfig, System::currentTimeMillis, (rule, timestamp) -> {
+            log.debug("Rule triggered: {}", rule.id());
+            executeRuleAction(rule.rule().getAction());
+        });
+    }
+
+    /**
+     * Loads the rule set and starts the timers of scheduled rules, which must run before any sensor event arrives.
+     */
+    public void start() {
+        getRuleEngine().start();
     }
 
     public DeviceRuleResponse createRule(DeviceRuleCreateRequest request) {
         try {
+            RuleCompiler.validate(request.condition());
             validateMaxDifference(request);
             DeviceRuleEntity rule = mapper.toEntity(request);
             rule.setEnabled(false);
             Long id = ruleRepository.create(rule);
             rule.setId(id);
+            ruleCache.invalidate(ALL_RULES_CACHE_KEY);
             return mapper.toResponse(rule);
         } catch (SQLException e) {
             log.error("Failed newName create rule", e);
@@ -77,8 +101,11 @@ public class DeviceRuleService implements SensorEventListener {
     public DeviceRuleResponse updateRule(Long id, DeviceRuleUpdateRequest request) {
         try {
             DeviceRuleEntity existingRule = findRuleById(id);
+            RuleCompiler.validate(request.condition());
             mapper.updateEntityFromRequest(request, existingRule);
             ruleRepository.update(id, existingRule);
+            ruleCache.invalidate(ALL_RULES_CACHE_KEY);
+            ruleEngine.put(existingRule);
 
             return mapper.toResponse(existingRule);
         } catch (SQLException | RecordNotFoundException e) {
@@ -91,6 +118,8 @@ public class DeviceRuleService implements SensorEventListener {
         try {
             findRuleById(id);
             ruleRepository.delete(id);
+            ruleCache.invalidate(ALL_RULES_CACHE_KEY);
+            ruleEngine.remove(id);
         } catch (SQLException | RecordNotFoundException e) {
             log.error("Failed newName delete rule", e);
             throw new BaseRuntimeException("Failed newName delete rule", e);
@@ -113,93 +142,131 @@ public class DeviceRuleService implements SensorEventListener {
         for (DeviceRuleEntity rule : getAllRulesWithCache()) {
             rule.setEnabled(request.activate());
             ruleRepository.update(rule.getId(), rule);
+            ruleEngine.put(rule);
         }
     }
 
     public void processDeviceUpdate(String deviceName, Map<String, Object> deviceData) {
         try {
-            List<DeviceRuleEntity> activeRules = getAllRulesWithCache().stream().filter(DeviceRuleEntity::getEnabled).toList();
-            if (!isExistDeviceNameInCriteria(activeRules, deviceName)) {
-                return;
-            }
-
-            // Güncel veriyi kaydet
-            DeviceDataSnapshot currentSnapshot = new DeviceDataSnapshot(
-                deviceName,
-                deviceData,
-                System.currentTimeMillis()
-            );
-            lastDeviceData.put(deviceName, currentSnapshot);
-
-
-            activeRules.stream()
-                .filter(this::isRuleTriggered)
-                .forEach(rule -> {
-                    log.debug("Rule triggered: {}", rule.getId());
-                    executeRuleAction(rule.getAction());
-                });
+            getRuleEngine().process(deviceName, deviceData);
         } catch (Exception e) {
             log.error("Error processing device update", e);
         }
     }
 
-    @Override
-    public void onDeviceDataReceived(String deviceName, Map<String, Object> data) {
-        processDeviceUpdate(deviceName, data);
+    /**
+     * Feeds recorded events through a separate {@link RuleEngine} on a virtual clock, as fast as possible. Fired
+     * actions are collected instead of being sent. Uses the given rules, or the stored ones if none are given.
+     */
+    public RuleReplayResponse replay(RuleReplayRequest request) {
+        List<DeviceRuleEntity> rules = request.rules() != null ? toReplayRules(request.rules())
+            : getAllRulesWithCache();
+        List<ReplayEvent> events = request.events() != null ? new ArrayList<>(request.events()) : new ArrayList<>();
+        for (ReplayEvent event : events) {
+            if (event.timestamp() == null || event.deviceName() == null || event.payload() == null) {
+                throw new BaseRuntimeException("Replay events require a timestamp, device name and payload");
+            }
+        }
+        events.sort(Comparator.comparing(ReplayEvent::timestamp));
+
+        long[] now = {events.isEmpty() ? System.currentTimeMillis() : events.get(0).timestamp()};
+        List<ReplayedAction> actions = new ArrayList<>();
+        try (RuleEngine engine = new RuleEngine(ruleConfig, () -> now[0],
+            (rule, timestamp) -> actions.add(toReplayedAction(rule, timestamp)))) {
+            engine.load(rules);
+
+            long start = System.nanoTime();
+            for (ReplayEvent event : events) {
+                now[0] = event.timestamp();
+                engine.advanceTo(now[0]);
+                engine.process(event.deviceName(), event.payload());
+            }
+            if (request.untilTimestamp() != null && request.untilTimestamp() > now[0]) {
+                now[0] = request.untilTimestamp();
+                engine.advanceTo(now[0]);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            RuleEngineStats stats = engine.getStats();
+            double eventsPerSecond = elapsed > 0 ? events.size() * 1e9 / elapsed : 0;
+            log.info("Replayed {} events against {} rules in {} ms ({} events/s), {} actions", events.size(),
+                stats.enabledRules(), elapsed / 1_000_000, (long) eventsPerSecond, actions.size());
+            return new RuleReplayResponse(events.size(), stats.firings(), stats.suppressedFirings(), elapsed,
+                eventsPerSecond, actions);
+        } catch (BaseRuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to replay rules", e);
+            throw new BaseRuntimeException("Failed to replay rules", e);
+        }
     }
 
-    private boolean isExistDeviceNameInCriteria(List<DeviceRuleEntity> activeRules, String deviceName) {
-        return activeRules.stream()
-            .anyMatch(deviceRuleEntity -> deviceRuleEntity.getCondition().requiredDeviceSequence().contains(deviceName));
+    public RuleEngineStats getRuleStats() {
+        return getRuleEngine().getStats();
     }
 
-    private boolean isRuleTriggered(DeviceRuleEntity rule) {
-        RuleCondition condition = rule.getCondition();
-
-        // Sıralı cihaz listesini kontrol et
-        List<String> requiredDevices = condition.requiredDeviceSequence();
-
-        // Tüm gerekli cihazların verisi var mı?
-        boolean allDevicesPresent = requiredDevices.stream().allMatch(lastDeviceData::containsKey);
-
-        if (!allDevicesPresent) {
-            return false;
+    public RuleProfileReport getRuleProfile(int top, String sort) {
+        if (top < 1) {
+            throw new BaseRuntimeException("top must be positive");
         }
+        try {
+            return getRuleEngine().getProfile(top, RuleProfileSort.valueOf(sort.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException e) {
+            throw new BaseRuntimeException("Unknown profile sort: " + sort, e);
+        }
+    }
 
-        // Zaman farkını kontrol et
-        List<DeviceDataSnapshot> relevantSnapshots = requiredDevices.stream().map(lastDeviceData::get).toList();
-
-        // İlk ve son snapshot arasındaki zaman farkını hesapla
-        long timeDifference = relevantSnapshots.get(relevantSnapshots.size() - 1).timestamp() - relevantSnapshots.get(0).timestamp();
-
-        if (condition.maxTimeDifferenceMs() != null && timeDifference > condition.maxTimeDifferenceMs()) {
-            return false;
+    public void configureProfiling(boolean enabled, int sampleEvery) {
+        if (sampleEvery < 1) {
+            throw new BaseRuntimeException("sampleEvery must be positive");
         }
+        ruleEngine.configureProfiling(enabled, sampleEvery);
+    }
 
+    @Override
+    public void onDeviceDataReceived(String deviceName, Map<String, Object> data) {
+        processDeviceUpdate(deviceName, data);
+    }
 
-        // Tüm kriterleri kontrol et
-        return relevantSnapshots.stream().allMatch(snapshot -> evaluateDeviceCriteria(snapshot, condition.criteria())
-        );
+    @Override
+    public void close() throws Exception {
+        ruleEngine.close();
     }
 
-    private boolean evaluateDeviceCriteria(DeviceDataSnapshot snapshot, List<DeviceCriteria> criteriaList) {
-        return criteriaList.stream()
-            .filter(c -> c.deviceName().equals(snapshot.deviceName()))
-            .allMatch(criteria -> {
-                Object actualValue = snapshot.data().get(criteria.field());
-                if (actualValue == null) {
-                    return false;
+    private RuleEngine getRuleEngine() {
+        if (!ruleEngine.isLoaded()) {
+            synchronized (ruleEngine) {
+                if (!ruleEngine.isLoaded()) {
+                    ruleEngine.load(getAllRulesWithCache());
                 }
+            }
+        }
+        return ruleEngine;
+    }
+
+    private List<DeviceRuleEntity> toReplayRules(List<DeviceRuleCreateRequest> requests) {
+        List<DeviceRuleEntity> rules = new ArrayList<>();
+        for (DeviceRuleCreateRequest request : requests) {
+            RuleCompiler.validate(request.condition());
+            DeviceRuleEntity rule = mapper.toEntity(request);
+            rule.setId((long) rules.size() + 1);
+            rule.setEnabled(true);
+            rules.add(rule);
+        }
+        return rules;
+    }
 
-                return criteria.operator().compare(actualValue, criteria.value());
-            });
+    private static ReplayedAction toReplayedAction(CompiledRule rule, long timestamp) {
+        RuleAction action = rule.rule().getAction();
+        return new ReplayedAction(timestamp, rule.id(), rule.rule().getName(), action.targetDeviceName(),
+            action.commandName(), action.parameters());
     }
 
     private void executeRuleAction(RuleAction action) {
         try {
             log.debug("Executing rule action: target={}, command={}", action.targetDeviceName(), action.commandName());
             SendDeviceCommandRequest commandRequest = mapper.toDeviceCommandRequest(action);
-            deviceCommandService.executeCommand(commandRequest);
+            deviceCommandService.executeCommand(commandRequest, CommandPriority.RULE);
         } catch (Exception e) {
             log.error("Error executing rule action for device: {}", action.targetDeviceName(), e);
         }
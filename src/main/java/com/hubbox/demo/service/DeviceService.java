@@ -1,14 +1,14 @@
 package com.hubbox.demo.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.hubbox.demo.dto.request.DeviceCreateRequest;
 import com.hubbox.demo.dto.request.DeviceRenameRequest;
 import com.hubbox.demo.dto.request.DeviceUpdateRequest;
 import com.hubbox.demo.dto.request.PermitRequest;
+import com.hubbox.demo.dto.response.BridgeGroup;
 import com.hubbox.demo.dto.response.DeviceResponse;
 import com.hubbox.demo.dto.response.ResponseMessage;
 import com.hubbox.demo.entities.DeviceEntity;
@@ -18,22 +18,27 @@ import com.hubbox.demo.exceptions.RecordNotFoundException;
 import com.hubbox.demo.listener.TopicMessageListener;
 import com.hubbox.demo.mapper.DeviceMapper;
 import com.hubbox.demo.repository.DeviceRepository;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Singleton
 public class DeviceService implements TopicMessageListener, AutoCloseable {
     private static final String DEVICE_TOPIC = "bridge/devices";
+    private static final String GROUP_TOPIC = "bridge/groups";
     private final DeviceRepository deviceRepository;
     private final DeviceMapper deviceMapper;
     private final MqttService mqttService;
     private final SensorEventManager eventManager;
     private final ObjectMapper objectMapper;
-    private final List<DeviceResponse> deviceList = new ArrayList<>();
+    private final BridgeDevicesDecoder bridgeDevicesDecoder;
+    private final DeviceRegistry deviceRegistry = new DeviceRegistry();
 
     @Inject
     public DeviceService(DeviceRepository deviceRepository, DeviceMapper deviceMapper, MqttService mqttService,
@@ -44,6 +49,7 @@ public class DeviceService implements TopicMessageListener, AutoCloseable {
         this.mqttService = mqttService;
         this.eventManager = eventManager;
         this.objectMapper = objectMapper;
+        this.bridgeDevicesDecoder = new BridgeDevicesDecoder(objectMapper.getFactory());
         initialize();
     }
 
@@ -57,9 +63,7 @@ public class DeviceService implements TopicMessageListener, AutoCloseable {
             DeviceEntity entity = deviceMapper.toEntity(device);
             this.deviceRepository.create(entity);
             DeviceResponse response = deviceMapper.toResponse(entity);
-            synchronized (deviceList) {
-                deviceList.add(response);
-            }
+            deviceRegistry.putDatabaseDevice(response);
             return response;
         } catch (Exception e) {
             log.error("Error creating device", e);
@@ -71,13 +75,10 @@ public class DeviceService implements TopicMessageListener, AutoCloseable {
     public DeviceResponse updateDevice(Long id, DeviceUpdateRequest device) {
         try {
             DeviceEntity entity = findDeviceById(id);
-            removeDeviceFromList(entity);
             deviceMapper.updateEntityFromRequest(device, entity);
             this.deviceRepository.update(id, entity);
             DeviceResponse response = deviceMapper.toResponse(entity);
-            synchronized (deviceList) {
-                deviceList.add(response);
-            }
+            deviceRegistry.putDatabaseDevice(response);
             return response;
         } catch (Exception e) {
             log.error("Error updating device", e);
@@ -87,9 +88,9 @@ public class DeviceService implements TopicMessageListener, AutoCloseable {
 
     public void deleteDevice(Long id) {
         try {
-            DeviceEntity entity = findDeviceById(id);
-            removeDeviceFromList(entity);
+            findDeviceById(id);
             this.deviceRepository.delete(id);
+            deviceRegistry.removeDatabaseDevice(id);
         } catch (Exception e) {
             log.error("Error deleting device", e);
             throw new BaseRuntimeException(e);
@@ -97,23 +98,42 @@ public class DeviceService implements TopicMessageListener, AutoCloseable {
     }
 
     public List<DeviceResponse> getAllDevices() {
-        return deviceList;
+        return deviceRegistry.snapshot().devices().stream()
+            .map(device -> device.materialize(objectMapper))
+            .toList();
     }
 
     public DeviceResponse getDeviceById(String deviceName) throws DeviceNotFoundException {
-        return deviceList.stream()
-            .filter(device -> device.friendlyName().equals(deviceName))
-            .findFirst()
-            .orElseThrow(() -> new DeviceNotFoundException("Device not found: " + deviceName));
+        return findRegisteredDevice(deviceName).materialize(objectMapper);
+    }
+
+    public DeviceResponse getDeviceSummary(String deviceName) throws DeviceNotFoundException {
+        return findRegisteredDevice(deviceName).device();
+    }
+
+    public Optional<DeviceResponse> findDeviceSummary(String deviceName) {
+        return deviceRegistry.findByFriendlyName(deviceName).map(RegisteredDevice::device);
+    }
+
+    public Optional<DeviceResponse> findDeviceByIeeeAddress(String ieeeAddress) {
+        return deviceRegistry.findByIeeeAddress(ieeeAddress).map(RegisteredDevice::device);
+    }
+
+    public List<DeviceResponse> getDevicesByModel(String modelId) {
+        return deviceRegistry.findByModelId(modelId).stream().map(RegisteredDevice::device).toList();
+    }
+
+    public Optional<BridgeGroup> findGroup(String groupName) {
+        return deviceRegistry.findGroup(groupName);
+    }
+
+    public Collection<BridgeGroup> getGroups() {
+        return deviceRegistry.groups();
     }
 
     public ResponseMessage renameDevice(DeviceRenameRequest request) {
-        synchronized (deviceList) {
-            deviceList.stream()
-                .filter(device -> device.friendlyName().equals(request.oldName()))
-                .findFirst()
-                .ifPresent(device -> mqttService.sendCommand(DEVICE_TOPIC + "/rename", request.toJson().toJSONString()));
-        }
+        deviceRegistry.findByFriendlyName(request.oldName())
+            .ifPresent(device -> mqttService.sendCommand(DEVICE_TOPIC + "/rename", request.toJson().toJSONString()));
         return new ResponseMessage(200, null, "Device renamed successfully");
     }
 
@@ -124,49 +144,58 @@ public class DeviceService implements TopicMessageListener, AutoCloseable {
 
     @Override
     public void onMessage(String topic, String message) {
+        onMessage(topic, ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public void onMessage(String topic, ByteBuffer payload) {
         if (topic.equals(DEVICE_TOPIC)) {
-            loadDevices(message);
+            loadDevices(payload);
+        } else if (topic.equals(GROUP_TOPIC)) {
+            loadGroups(payload);
         } else {
-            checkSensorData(topic, message);
+            checkSensorData(topic, payload);
         }
 
     }
 
-    private void loadDevices(String message) {
+    private void loadDevices(ByteBuffer payload) {
         try {
-            List<DeviceResponse> updatedDevices = objectMapper.readValue(message,
-                objectMapper.getTypeFactory().constructCollectionType(List.class, DeviceResponse.class));
-
-            synchronized (deviceList) {
-                deviceList.clear();
-                deviceRepository.findAll().stream().map(deviceMapper::toResponse).forEach(deviceList::add);
-                deviceList.addAll(updatedDevices);
+            if (!deviceRegistry.isDatabaseLoaded()) {
+                deviceRegistry.loadDatabaseDevices(
+                    deviceRepository.findAll().stream().map(deviceMapper::toResponse).toList());
             }
 
-            log.debug("Updated device list, total devices: {}", deviceList.size());
-        } catch (JsonProcessingException | SQLException e) {
+            DeviceRegistry.BridgeDiff diff = deviceRegistry.applyBridgeDevices(bridgeDevicesDecoder.decode(payload));
+            log.debug("Updated device list, added: {}, removed: {}, changed: {}, unchanged: {}",
+                diff.added(), diff.removed(), diff.changed(), diff.unchanged());
+        } catch (IOException | SQLException e) {
             log.error("Error processing device update message", e);
             throw new BaseRuntimeException(e);
         }
     }
 
-    private void checkSensorData(String topic, String message) {
-        deviceList.stream()
-            .filter(device -> device.friendlyName().equals(topic))
-            .findFirst()
-            .ifPresent(device -> {
-                try {
-                    Map<String, Object> deviceData = objectMapper.readValue(message, new TypeReference<>() {
-                    });
-                    eventManager.publishEvent(topic, deviceData);
-                } catch (JsonProcessingException e) {
-                    log.error("Error parsing device data for {}: {}", topic, message, e);
-                }
-            });
+    private void loadGroups(ByteBuffer payload) {
+        try {
+            BridgeGroup[] groups = objectMapper.readValue(new ByteBufferBackedInputStream(payload.duplicate()),
+                BridgeGroup[].class);
+            deviceRegistry.applyBridgeGroups(List.of(groups));
+            log.debug("Updated group list, {} groups", groups.length);
+        } catch (IOException e) {
+            log.error("Error processing group update message", e);
+            throw new BaseRuntimeException(e);
+        }
+    }
+
+    private void checkSensorData(String topic, ByteBuffer payload) {
+        if (deviceRegistry.findByFriendlyName(topic).isPresent()) {
+            eventManager.publishRawEvent(topic, payload);
+        }
     }
 
     private void subscribeToTopic() {
         mqttService.addTopicListener(DEVICE_TOPIC, this);
+        mqttService.addTopicListener(GROUP_TOPIC, this);
         mqttService.addTopicListener("#", this);
     }
 
@@ -175,21 +204,18 @@ public class DeviceService implements TopicMessageListener, AutoCloseable {
             .orElseThrow(() -> new RecordNotFoundException("Device not found: " + id));
     }
 
-    private void removeDeviceFromList(DeviceEntity entity) {
-        synchronized (deviceList) {
-            deviceList.stream().filter(deviceResponse -> deviceResponse.friendlyName().equals(entity.getFriendlyName())).findFirst()
-                .ifPresent(deviceList::remove);
-        }
+    private RegisteredDevice findRegisteredDevice(String deviceName) throws DeviceNotFoundException {
+        return deviceRegistry.findByFriendlyName(deviceName)
+            .orElseThrow(() -> new DeviceNotFoundException("Device not found: " + deviceName));
     }
 
 
     @Override
     public void close() throws Exception {
         mqttService.removeTopicListener(DEVICE_TOPIC);
+        mqttService.removeTopicListener(GROUP_TOPIC);
         mqttService.removeTopicListener("#");
-        synchronized (deviceList) {
-            deviceList.clear();
-        }
+        deviceRegistry.clear();
         log.info("Device service shut down");
     }
 }
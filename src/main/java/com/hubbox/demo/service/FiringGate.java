@@ -0,0 +1,55 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.dto.FiringMode;
+import com.hubbox.demo.dto.RuleFiring;
+
+/**
+ * Decides whether a matched rule actually fires. In {@link FiringMode#EDGE} mode the gate latches on the first firing
+ * and only re-arms once one of the rule's criteria has stopped holding; independently of the mode, a firing within
+ * {@code minIntervalMs} of the previous one is suppressed. Carried over from the previous network while the rule's
+ * firing settings are unchanged, so a rule update does not re-fire a rule that is already latched.
+ */
+final class FiringGate {
+    private final RuleFiring firing;
+    private final boolean edge;
+    private final long minIntervalMs;
+    private volatile boolean latched;
+    private long lastFired = Long.MIN_VALUE;
+
+    FiringGate(RuleFiring firing) {
+        this.firing = firing;
+        this.edge = firing.effectiveMode() == FiringMode.EDGE;
+        this.minIntervalMs = firing.effectiveMinIntervalMs();
+    }
+
+    boolean matches(RuleFiring otherFiring) {
+        return firing.equals(otherFiring);
+    }
+
+    /**
+     * Called when one of the rule's criteria stops holding.
+     */
+    void rearm() {
+        if (latched) {
+            latched = false;
+        }
+    }
+
+    synchronized Outcome tryFire(long timestamp) {
+        if (edge && latched) {
+            return Outcome.SUPPRESSED;
+        }
+        if (lastFired != Long.MIN_VALUE && timestamp - lastFired < minIntervalMs) {
+            return Outcome.SUPPRESSED;
+        }
+        lastFired = timestamp;
+        latched = edge;
+        return Outcome.FIRED;
+    }
+
+    enum Outcome {
+        NO_MATCH,
+        FIRED,
+        SUPPRESSED
+    }
+}
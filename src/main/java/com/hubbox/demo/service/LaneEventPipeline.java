@@ -0,0 +1,56 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.config.EventConfig;
+import com.hubbox.demo.dto.response.EventLaneStats;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Hashes events by device name onto single-threaded {@link SensorEventLane}s: strict ordering per device,
+ * parallelism across devices.
+ */
+class LaneEventPipeline implements SensorEventPipeline {
+    private final SensorEventLane[] lanes;
+
+    LaneEventPipeline(EventConfig eventConfig, Consumer<SensorEvent> handler,
+                      IntFunction<ThreadFactory> threadFactories) {
+        this.lanes = new SensorEventLane[eventConfig.lanes()];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new SensorEventLane(i, eventConfig.queueSize(), eventConfig.overloadPolicy(), handler,
+                threadFactories.apply(i));
+        }
+    }
+
+    @Override
+    public boolean publish(String deviceName, ByteBuffer payload, Map<String, Object> data) {
+        // Aynı cihazın olayları hep aynı lane'e düşer, böylece sıralama korunur
+        return lanes[laneIndex(deviceName)].offer(deviceName, payload, data);
+    }
+
+    @Override
+    public List<EventLaneStats> stats() {
+        List<EventLaneStats> stats = new ArrayList<>(lanes.length);
+        for (SensorEventLane lane : lanes) {
+            stats.add(lane.stats());
+        }
+        return stats;
+    }
+
+    @Override
+    public void close(long timeout, TimeUnit unit) throws InterruptedException {
+        for (SensorEventLane lane : lanes) {
+            lane.close(timeout, unit);
+        }
+    }
+
+    private int laneIndex(String deviceName) {
+        int hash = deviceName.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), lanes.length);
+    }
+}
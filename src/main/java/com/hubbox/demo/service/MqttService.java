@@ -7,20 +7,22 @@ import com.hivemq.client.mqtt.mqtt3.Mqtt3AsyncClient;
 import com.hivemq.client.mqtt.mqtt3.message.publish.Mqtt3Publish;
 import com.hubbox.demo.config.MqttConfig;
 import com.hubbox.demo.listener.TopicMessageListener;
+import com.hubbox.demo.util.TopicTrie;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Singleton
 public class MqttService implements AutoCloseable {
+    private static final ByteBuffer EMPTY_PAYLOAD = ByteBuffer.allocate(0).asReadOnlyBuffer();
 
     private final Mqtt3AsyncClient client;
     private final MqttConfig mqttConfig;
     private final CompletableFuture<Boolean> connectionFuture;
-    private final Map<String, TopicMessageListener> topicListeners = new ConcurrentHashMap<>();
+    private final TopicTrie<TopicMessageListener> topicListeners = new TopicTrie<>();
     private boolean isSubscribed = false;
 
     @Inject
@@ -68,60 +70,75 @@ public class MqttService implements AutoCloseable {
     }
 
     public void addTopicListener(String topic, TopicMessageListener listener) {
-        topicListeners.put(mqttConfig.topicFilter() + topic, listener);
+        topicListeners.put(topic, listener);
         log.debug("Added listener for topic: {}", topic);
     }
 
     public void removeTopicListener(String topic) {
-        topicListeners.remove(mqttConfig.topicFilter() + topic);
+        topicListeners.remove(topic);
         log.info("Removed listener for topic: {}", topic);
     }
 
     private void handleMessage(Mqtt3Publish message) {
         String topic = message.getTopic().toString();
-        String payload = new String(message.getPayloadAsBytes(), StandardCharsets.UTF_8);
+        String prefix = mqttConfig.topicFilter();
+        if (!topic.startsWith(prefix)) {
+            return;
+        }
+
+        String topicName = topic.substring(prefix.length());
+        ByteBuffer payload = message.getPayload().orElse(EMPTY_PAYLOAD);
 
         log.debug("Received message on topic: {}", topic);
 
-        topicListeners.forEach((topicFilter, listener) -> {
-            if (topic.matches(topicFilter.replace("#", ".*"))) {
-                String topicName = topic.replace(mqttConfig.topicFilter(), "");
-                listener.onMessage(topicName, payload);
-            }
-        });
+        topicListeners.forEachMatch(topicName, listener -> listener.onMessage(topicName, payload.duplicate()));
     }
 
 
-    public void sendCommand(String topicName, String command) {
-        connectionFuture.thenCompose(connected -> {
+    public CompletableFuture<Void> sendCommand(String topicName, String command) {
+        return sendCommand(topicName, command.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public CompletableFuture<Void> sendCommand(String topicName, byte[] command) {
+        return whenConnected(() -> publish(topicName, command));
+    }
+
+    private CompletableFuture<Void> whenConnected(Supplier<CompletableFuture<Void>> send) {
+        return connectionFuture.thenCompose(connected -> {
             if (Boolean.FALSE.equals(connected)) {
                 log.error("Cannot send command - not connected newName broker");
                 return CompletableFuture.failedFuture(
                     new IllegalStateException("Not connected newName MQTT broker"));
             }
-
-            String topic = mqttConfig.topicFilter() + topicName;
-            log.debug("Preparing newName send command. Topic: {}, Command: {}", topic, command);
-
-            return client.publishWith()
-                .topic(topic)
-                .qos(MqttQos.AT_LEAST_ONCE)
-                .payload(command.getBytes(StandardCharsets.UTF_8))
-                .send()
-                .whenComplete((publish, throwable) -> {
-                    if (throwable != null) {
-                        log.error("Command sending failed. Error: {}", throwable.getMessage(), throwable);
-                    } else {
-                        log.info("Command successfully sent.  Topic: {}", topic);
-                    }
-                })
-                .thenApply(publish -> {
-                    log.debug("Command processing completed");
-                    return null;
-                });
+            return send.get();
         });
     }
 
+    private CompletableFuture<Void> publish(String topicName, byte[] command) {
+        String topic = mqttConfig.topicFilter() + topicName;
+        if (log.isDebugEnabled()) {
+            log.debug("Preparing newName send command. Topic: {}, Command: {}", topic,
+                new String(command, StandardCharsets.UTF_8));
+        }
+
+        return client.publishWith()
+            .topic(topic)
+            .qos(MqttQos.AT_LEAST_ONCE)
+            .payload(command)
+            .send()
+            .whenComplete((publish, throwable) -> {
+                if (throwable != null) {
+                    log.error("Command sending failed. Error: {}", throwable.getMessage(), throwable);
+                } else {
+                    log.info("Command successfully sent.  Topic: {}", topic);
+                }
+            })
+            .thenApply(publish -> {
+                log.debug("Command processing completed");
+                return null;
+            });
+    }
+
     @Override
     public void close() throws Exception {
         client.disconnect()
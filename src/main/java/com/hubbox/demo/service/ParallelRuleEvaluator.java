@@ -0,0 +1,151 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.config.RuleConfig;
+import com.hubbox.demo.dto.response.RuleEvaluationStats;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Evaluates the rules an event touches against the {@link ConditionNetwork}. Up to {@code parallelThreshold} rules
+ * are evaluated on the calling thread; larger sets are split into ForkJoin tasks. Every task writes the outcome of
+ * its rules into their slot of one array, so the caller sees the outcomes in rule order whichever way they were
+ * computed and runs the actions in that order.
+ *
+ * <p>Whether splitting pays off depends on the machine and on how much sequence matching the rules do, so one in
+ * {@value #SEQUENTIAL_SAMPLE_EVERY} large evaluations is run sequentially as a control and the per-rule cost of both
+ * paths is tracked as an EWMA. Events the {@link RuleProfiler} samples are evaluated sequentially with each rule
+ * timed and charged its share of the condition network time, and are left out of the EWMA.
+ */
+@Slf4j
+final class ParallelRuleEvaluator implements AutoCloseable {
+    private static final int SEQUENTIAL_SAMPLE_EVERY = 16;
+    private static final double EWMA_WEIGHT = 0.1;
+
+    private final int threshold;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private final AtomicLong largeEvaluations = new AtomicLong();
+    private final Ewma parallelNanosPerRule = new Ewma();
+    private final Ewma sequentialNanosPerRule = new Ewma();
+    private final RuleProfiler profiler;
+
+    ParallelRuleEvaluator(RuleConfig config, RuleProfiler profiler) {
+        this.threshold = config.parallelThreshold();
+        this.chunkSize = Math.max(1, config.parallelThreshold() / 2);
+        this.pool = new ForkJoinPool(config.parallelism());
+        this.profiler = profiler;
+    }
+
+    /**
+     * @param costs condition network time per rule of an event sampled by the profiler, or {@code null}
+     * @return outcome of each rule, at the rule's index
+     */
+    FiringGate.Outcome[] evaluate(List<CompiledRule> rules, ConditionNetwork network, String deviceName,
+                                  long timestamp, Map<Long, Long> costs) {
+        FiringGate.Outcome[] outcomes = new FiringGate.Outcome[rules.size()];
+        if (costs != null) {
+            evaluateProfiled(rules, network, deviceName, timestamp, costs, outcomes);
+            return outcomes;
+        }
+        if (rules.size() <= threshold) {
+            evaluateRange(rules, network, deviceName, timestamp, outcomes, 0, rules.size());
+            return outcomes;
+        }
+
+        boolean sample = largeEvaluations.incrementAndGet() % SEQUENTIAL_SAMPLE_EVERY == 0;
+        long start = System.nanoTime();
+        if (sample) {
+            evaluateRange(rules, network, deviceName, timestamp, outcomes, 0, rules.size());
+        } else {
+            pool.invoke(new EvaluateTask(rules, network, deviceName, timestamp, outcomes, 0, rules.size()));
+        }
+        double nanosPerRule = (double) (System.nanoTime() - start) / rules.size();
+        (sample ? sequentialNanosPerRule : parallelNanosPerRule).add(nanosPerRule);
+        return outcomes;
+    }
+
+    RuleEvaluationStats getStats() {
+        double parallel = parallelNanosPerRule.value();
+        double sequential = sequentialNanosPerRule.value();
+        long large = largeEvaluations.get();
+        return new RuleEvaluationStats(threshold, pool.getParallelism(), large - large / SEQUENTIAL_SAMPLE_EVERY,
+            large / SEQUENTIAL_SAMPLE_EVERY, Double.isNaN(parallel) ? null : parallel,
+            Double.isNaN(sequential) ? null : sequential,
+            !Double.isNaN(parallel) && !Double.isNaN(sequential) && parallel < sequential);
+    }
+
+    private static void evaluateRange(List<CompiledRule> rules, ConditionNetwork network, String deviceName,
+                                      long timestamp, FiringGate.Outcome[] outcomes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            outcomes[i] = network.fire(rules.get(i).id(), deviceName, timestamp);
+        }
+    }
+
+    private void evaluateProfiled(List<CompiledRule> rules, ConditionNetwork network, String deviceName,
+                                  long timestamp, Map<Long, Long> costs, FiringGate.Outcome[] outcomes) {
+        for (int i = 0; i < outcomes.length; i++) {
+            Long ruleId = rules.get(i).id();
+            long start = System.nanoTime();
+            outcomes[i] = network.fire(ruleId, deviceName, timestamp);
+            long nanos = System.nanoTime() - start + costs.getOrDefault(ruleId, 0L);
+            profiler.recordEvaluation(ruleId, nanos, outcomes[i] != FiringGate.Outcome.NO_MATCH);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        pool.shutdown();
+        if (!pool.awaitTermination(5, TimeUnit.SECONDS)) {
+            log.warn("Rule evaluation pool did not terminate in time");
+        }
+    }
+
+    private final class EvaluateTask extends RecursiveAction {
+        private final List<CompiledRule> rules;
+        private final ConditionNetwork network;
+        private final String deviceName;
+        private final long timestamp;
+        private final FiringGate.Outcome[] outcomes;
+        private final int from;
+        private final int to;
+
+        private EvaluateTask(List<CompiledRule> rules, ConditionNetwork network, String deviceName, long timestamp,
+                             FiringGate.Outcome[] outcomes, int from, int to) {
+            this.rules = rules;
+            this.network = network;
+            this.deviceName = deviceName;
+            this.timestamp = timestamp;
+            this.outcomes = outcomes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkSize) {
+                evaluateRange(rules, network, deviceName, timestamp, outcomes, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new EvaluateTask(rules, network, deviceName, timestamp, outcomes, from, mid),
+                new EvaluateTask(rules, network, deviceName, timestamp, outcomes, mid, to));
+        }
+    }
+
+    private static final class Ewma {
+        private double value = Double.NaN;
+
+        synchronized void add(double sample) {
+            value = Double.isNaN(value) ? sample : value + EWMA_WEIGHT * (sample - value);
+        }
+
+        synchronized double value() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.hubbox.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubbox.demo.dto.response.Definition;
+import com.hubbox.demo.exceptions.BaseRuntimeException;
+import java.io.IOException;
+
+/**
+ * The {@code definition} object of a bridge device kept as raw JSON bytes. It is bound to {@link Definition}
+ * the first time something asks for it and the result is memoized for the lifetime of the registry entry.
+ */
+public class RawDefinition {
+    private final byte[] json;
+    private volatile Definition definition;
+
+    public RawDefinition(byte[] json) {
+        this.json = json;
+    }
+
+    public Definition get(ObjectMapper objectMapper) {
+        Definition result = definition;
+        if (result == null) {
+            try {
+                result = objectMapper.readValue(json, Definition.class);
+            } catch (IOException e) {
+                throw new BaseRuntimeException("Failed to parse device definition", e);
+            }
+            definition = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,15 @@
+package com.hubbox.demo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hubbox.demo.dto.response.DeviceResponse;
+
+/**
+ * Registry entry. {@code device} carries the routing fields used on the ingest path; bridge devices keep their
+ * definition as {@link RawDefinition} until the full response is materialized.
+ */
+public record RegisteredDevice(DeviceResponse device, RawDefinition definition) {
+
+    public DeviceResponse materialize(ObjectMapper objectMapper) {
+        return definition == null ? device : device.withDefinition(definition.get(objectMapper));
+    }
+}
@@ -0,0 +1,236 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.config.OverloadPolicy;
+import com.hubbox.demo.dto.response.EventLaneStats;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Disruptor-style pipeline over a power-of-two ring of reusable {@link SensorEvent} slots. Publishers claim a
+ * sequence, fill the slot in place and mark it published; the decode stage follows the published slots and the
+ * dispatch stage follows the decode stage's sequence. The producer is gated by the dispatch sequence, so a full
+ * ring never blocks the publisher. Steady-state publishing allocates nothing.
+ *
+ * <p>When the ring is full, {@link OverloadPolicy#DROP_NEWEST} rejects the event. {@link OverloadPolicy#LATEST_WINS}
+ * parks it outside the ring, one event per device: a newer event for a parked device replaces the parked one, and
+ * while any device is parked publishers go through the parking lock so a device's events stay in order. The
+ * dispatch stage moves parked events back into the ring as slots free up.
+ */
+@Slf4j
+class RingEventPipeline implements SensorEventPipeline {
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 200;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final SensorEvent[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong decoded = new AtomicLong(-1);
+    private final AtomicLong dispatched = new AtomicLong(-1);
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final OverloadPolicy overloadPolicy;
+    private final Map<String, SensorEvent> parked = new LinkedHashMap<>();
+    private final ReentrantLock parkLock = new ReentrantLock();
+    private volatile int parkedCount;
+    private final Consumer<SensorEvent> decoder;
+    private final Consumer<SensorEvent> handler;
+    private final Thread decodeThread;
+    private final Thread dispatchThread;
+    private volatile boolean running = true;
+
+    RingEventPipeline(int size, OverloadPolicy overloadPolicy, Consumer<SensorEvent> decoder,
+                      Consumer<SensorEvent> handler, ThreadFactory decodeThreadFactory,
+                      ThreadFactory dispatchThreadFactory) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + size);
+        }
+        this.slots = new SensorEvent[size];
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            slots[i] = new SensorEvent();
+            published.set(i, -1);
+        }
+        this.overloadPolicy = overloadPolicy;
+        this.decoder = decoder;
+        this.handler = handler;
+        this.decodeThread = decodeThreadFactory.newThread(this::runDecodeStage);
+        this.dispatchThread = dispatchThreadFactory.newThread(this::runDispatchStage);
+        decodeThread.start();
+        dispatchThread.start();
+    }
+
+    @Override
+    public boolean publish(String deviceName, ByteBuffer payload, Map<String, Object> data) {
+        if (!running) {
+            dropped.increment();
+            return false;
+        }
+        if (parkedCount == 0 && tryPublish(deviceName, payload, data)) {
+            return true;
+        }
+        if (overloadPolicy == OverloadPolicy.LATEST_WINS) {
+            return park(deviceName, payload, data);
+        }
+        dropped.increment();
+        return false;
+    }
+
+    @Override
+    public List<EventLaneStats> stats() {
+        long done = dispatched.get();
+        int depth = (int) (claimed.get() - done);
+        return List.of(new EventLaneStats(0, depth + parkedCount, slots.length - depth, done + 1, coalesced.sum(),
+            dropped.sum()));
+    }
+
+    @Override
+    public void close(long timeout, TimeUnit unit) throws InterruptedException {
+        running = false;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Thread thread : List.of(decodeThread, dispatchThread)) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            thread.join(Math.max(1, remaining));
+            if (thread.isAlive()) {
+                log.warn("Sensor event ring stage {} did not drain in time, interrupting", thread.getName());
+                thread.interrupt();
+            }
+        }
+    }
+
+    private boolean tryPublish(String deviceName, ByteBuffer payload, Map<String, Object> data) {
+        long current;
+        long next;
+        do {
+            current = claimed.get();
+            next = current + 1;
+            if (next - slots.length > dispatched.get()) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(current, next));
+
+        int index = (int) next & mask;
+        slots[index].set(deviceName, payload, data);
+        published.set(index, next);
+        return true;
+    }
+
+    private boolean park(String deviceName, ByteBuffer payload, Map<String, Object> data) {
+        parkLock.lock();
+        try {
+            if (!running) {
+                dropped.increment();
+                return false;
+            }
+            SensorEvent pending = parked.get(deviceName);
+            if (pending != null) {
+                pending.set(deviceName, payload, data);
+                coalesced.increment();
+                return true;
+            }
+            // Bekleyen olayı olmayan cihaz halkada yer varsa doğrudan yazılır
+            if (tryPublish(deviceName, payload, data)) {
+                return true;
+            }
+            SensorEvent event = new SensorEvent();
+            event.set(deviceName, payload, data);
+            parked.put(deviceName, event);
+            parkedCount = parked.size();
+            return true;
+        } finally {
+            parkLock.unlock();
+        }
+    }
+
+    /**
+     * @return whether at least one parked event moved into the ring
+     */
+    private boolean drainParked() {
+        parkLock.lock();
+        try {
+            boolean moved = false;
+            Iterator<SensorEvent> events = parked.values().iterator();
+            while (events.hasNext()) {
+                SensorEvent event = events.next();
+                if (!tryPublish(event.deviceName, event.payload, event.data)) {
+                    break;
+                }
+                events.remove();
+                moved = true;
+            }
+            parkedCount = parked.size();
+            return moved;
+        } finally {
+            parkLock.unlock();
+        }
+    }
+
+    private void runDecodeStage() {
+        long next = decoded.get() + 1;
+        int idle = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            int index = (int) next & mask;
+            if (published.get(index) == next) {
+                decoder.accept(slots[index]);
+                decoded.set(next++);
+                idle = 0;
+            } else if (!running && next > claimed.get() && parkedCount == 0) {
+                return;
+            } else {
+                idle = idle(idle);
+            }
+        }
+    }
+
+    private void runDispatchStage() {
+        long next = dispatched.get() + 1;
+        int idle = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            long available = decoded.get();
+            if (next <= available) {
+                while (next <= available) {
+                    SensorEvent slot = slots[(int) next & mask];
+                    handler.accept(slot);
+                    slot.clear();
+                    dispatched.set(next++);
+                }
+                if (parkedCount > 0) {
+                    drainParked();
+                }
+                idle = 0;
+            } else if (parkedCount > 0 && drainParked()) {
+                idle = 0;
+            } else if (!running && next > claimed.get() && parkedCount == 0) {
+                return;
+            } else {
+                idle = idle(idle);
+            }
+        }
+    }
+
+    private static int idle(int counter) {
+        if (counter < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else if (counter < YIELD_TRIES) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+            return counter;
+        }
+        return counter + 1;
+    }
+}
@@ -0,0 +1,9 @@
+package com.hubbox.demo.service;
+
+/**
+ * Receives the rules that fired. The live engine sends their action as a device command; a replay records it.
+ */
+@FunctionalInterface
+public interface RuleActionSink {
+    void execute(CompiledRule rule, long timestamp);
+}
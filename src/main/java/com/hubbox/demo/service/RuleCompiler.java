@@ -0,0 +1,250 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.dto.AggregationSpec;
+import com.hubbox.demo.dto.ComparisonOperator;
+import com.hubbox.demo.dto.DeviceCriteria;
+import com.hubbox.demo.dto.RuleCondition;
+import com.hubbox.demo.dto.RuleFiring;
+import com.hubbox.demo.dto.RuleTrigger;
+import com.hubbox.demo.dto.TriggerType;
+import com.hubbox.demo.entities.DeviceRuleEntity;
+import com.hubbox.demo.exceptions.BaseRuntimeException;
+import com.hubbox.demo.util.CronExpression;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoublePredicate;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Turns rule conditions into {@link CompiledRule}s. The criterion constant is parsed once here; at evaluation time
+ * a numeric reading is compared as a primitive double, a boolean as a primitive boolean and a string against the
+ * interned constant. Readings of any other type fall back to {@link ComparisonOperator#compare}. Aggregated criteria
+ * always compare a window aggregate against a numeric constant.
+ */
+@UtilityClass
+public class RuleCompiler {
+
+    public static CompiledRule compile(DeviceRuleEntity rule) {
+        RuleCondition condition = rule.getCondition();
+        validate(condition);
+        RuleFiring firing = condition.firing() != null ? condition.firing() : RuleFiring.DEFAULT;
+
+        Map<String, List<CompiledCriterion>> criteriaByDevice = new LinkedHashMap<>();
+        for (DeviceCriteria criteria : condition.criteria()) {
+            criteriaByDevice.computeIfAbsent(criteria.deviceName(), key -> new ArrayList<>())
+                .add(compile(criteria, firing.effectiveHysteresis()));
+        }
+        criteriaByDevice.replaceAll((key, value) -> List.copyOf(value));
+
+        RuleTrigger trigger = condition.trigger();
+        List<String> requiredDevices = new ArrayList<>(condition.requiredDeviceSequence());
+        if (trigger != null && trigger.type() == TriggerType.INACTIVITY
+            && !requiredDevices.contains(trigger.deviceName())) {
+            requiredDevices.add(trigger.deviceName());
+        }
+        CronExpression cron = trigger != null && trigger.type() == TriggerType.CRON
+            ? CronExpression.parse(trigger.cron()) : null;
+
+        return new CompiledRule(rule, List.copyOf(requiredDevices), condition.maxTimeDifferenceMs(),
+            Map.copyOf(criteriaByDevice), firing, trigger, cron);
+    }
+
+    public static void validate(RuleCondition condition) {
+        if (condition == null || condition.criteria() == null || condition.requiredDeviceSequence() == null) {
+            throw new BaseRuntimeException("Rule condition requires criteria and a device sequence");
+        }
+        for (DeviceCriteria criteria : condition.criteria()) {
+            if (criteria.deviceName() == null || criteria.field() == null || criteria.operator() == null) {
+                throw new BaseRuntimeException("Rule criteria requires a device name, field and operator");
+            }
+            if (criteria.aggregation() != null) {
+                validateAggregation(criteria);
+            }
+        }
+
+        RuleFiring firing = condition.firing();
+        if (firing != null && (firing.effectiveMinIntervalMs() < 0 || firing.effectiveHysteresis() < 0)) {
+            throw new BaseRuntimeException("Rule firing interval and hysteresis cannot be negative");
+        }
+        if (condition.trigger() != null) {
+            validateTrigger(condition.trigger());
+        }
+    }
+
+    private static void validateTrigger(RuleTrigger trigger) {
+        if (trigger.type() == null) {
+            throw new BaseRuntimeException("Rule trigger requires a type");
+        }
+        switch (trigger.type()) {
+            case CRON -> {
+                try {
+                    // Ayrıştırılabilen ama hiç eşleşmeyen ifadeler de (ör. 31 Şubat) reddedilir
+                    CronExpression.parse(trigger.cron()).next(ZonedDateTime.now());
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    throw new BaseRuntimeException("Invalid cron trigger: " + e.getMessage(), e);
+                }
+            }
+            case EVERY -> {
+                if (trigger.everyMs() == null || trigger.everyMs() <= 0) {
+                    throw new BaseRuntimeException("EVERY trigger requires a positive everyMs");
+                }
+            }
+            case INACTIVITY -> {
+                if (trigger.deviceName() == null || trigger.inactivityMs() == null || trigger.inactivityMs() <= 0) {
+                    throw new BaseRuntimeException("INACTIVITY trigger requires a device name and a positive "
+                        + "inactivityMs");
+                }
+            }
+        }
+    }
+
+    private static void validateAggregation(DeviceCriteria criteria) {
+        AggregationSpec aggregation = criteria.aggregation();
+        if (aggregation.function() == null || aggregation.windowMs() == null || aggregation.windowMs() <= 0) {
+            throw new BaseRuntimeException("Aggregation requires a function and a positive window");
+        }
+        if (aggregation.effectiveMaxSamples() <= 0
+            || aggregation.effectiveMaxSamples() > AggregationSpec.MAX_SAMPLES_LIMIT) {
+            throw new BaseRuntimeException("Aggregation maxSamples must be between 1 and "
+                + AggregationSpec.MAX_SAMPLES_LIMIT);
+        }
+        if (parseNumber(criteria.value()) == null || numericPredicate(criteria.operator(), 0) == null) {
+            throw new BaseRuntimeException("Aggregated criteria must compare against a number");
+        }
+    }
+
+    public static CompiledCriterion compile(DeviceCriteria criteria) {
+        return compile(criteria, 0);
+    }
+
+    /**
+     * @param hysteresis band applied to numeric threshold comparisons, see {@link RuleFiring#hysteresis()}
+     */
+    public static CompiledCriterion compile(DeviceCriteria criteria, double hysteresis) {
+        ComparisonOperator operator = criteria.operator();
+        Object value = criteria.value();
+        Double number = parseNumber(value);
+
+        if (criteria.aggregation() != null) {
+            return new CompiledCriterion(criteria.deviceName(), criteria.field(), operator, number,
+                criteria.aggregation(), thresholdHysteresis(operator, hysteresis), actual -> false,
+                numericPredicate(operator, number));
+        }
+        if (value == null) {
+            return criterion(criteria, null, 0, actual -> false, null);
+        }
+        if (value instanceof Boolean bool) {
+            return criterion(criteria, bool, 0, booleanPredicate(operator, bool, value), null);
+        }
+        if (number != null) {
+            return criterion(criteria, number, thresholdHysteresis(operator, hysteresis),
+                numberPredicate(operator, number, value), numericPredicate(operator, number));
+        }
+        String string = String.valueOf(value).intern();
+        return criterion(criteria, string, 0, stringPredicate(operator, string, value), null);
+    }
+
+    private static CompiledCriterion criterion(DeviceCriteria criteria, Object constant, double hysteresis,
+                                               CompiledCriterion.Predicate predicate,
+                                               DoublePredicate numericPredicate) {
+        return new CompiledCriterion(criteria.deviceName(), criteria.field(), criteria.operator(), constant, null,
+            hysteresis, predicate, numericPredicate);
+    }
+
+    private static double thresholdHysteresis(ComparisonOperator operator, double hysteresis) {
+        return switch (operator) {
+            case GREATER_THAN, GREATER_THAN_OR_EQUALS, LESS_THAN, LESS_THAN_OR_EQUALS -> hysteresis;
+            default -> 0;
+        };
+    }
+
+    private static DoublePredicate numericPredicate(ComparisonOperator operator, double constant) {
+        return switch (operator) {
+            case EQUALS -> actual -> actual == constant;
+            case NOT_EQUALS -> actual -> actual != constant;
+            case GREATER_THAN -> actual -> actual > constant;
+            case LESS_THAN -> actual -> actual < constant;
+            case GREATER_THAN_OR_EQUALS -> actual -> actual >= constant;
+            case LESS_THAN_OR_EQUALS -> actual -> actual <= constant;
+            default -> null;
+        };
+    }
+
+    private static CompiledCriterion.Predicate numberPredicate(ComparisonOperator operator, double constant,
+                                                               Object value) {
+        return switch (operator) {
+            case EQUALS -> actual -> actual instanceof Number n ? n.doubleValue() == constant
+                : operator.compare(actual, value);
+            case NOT_EQUALS -> actual -> actual instanceof Number n ? n.doubleValue() != constant
+                : operator.compare(actual, value);
+            case GREATER_THAN -> actual -> actual instanceof Number n ? n.doubleValue() > constant
+                : operator.compare(actual, value);
+            case LESS_THAN -> actual -> actual instanceof Number n ? n.doubleValue() < constant
+                : operator.compare(actual, value);
+            case GREATER_THAN_OR_EQUALS -> actual -> actual instanceof Number n ? n.doubleValue() >= constant
+                : operator.compare(actual, value);
+            case LESS_THAN_OR_EQUALS -> actual -> actual instanceof Number n ? n.doubleValue() <= constant
+                : operator.compare(actual, value);
+            default -> actual -> operator.compare(actual, value);
+        };
+    }
+
+    private static CompiledCriterion.Predicate booleanPredicate(ComparisonOperator operator, boolean constant,
+                                                                Object value) {
+        // ComparisonOperator boolean'ları true > false olarak sıralar
+        return switch (operator) {
+            case EQUALS -> actual -> actual instanceof Boolean b ? b == constant : operator.compare(actual, value);
+            case NOT_EQUALS -> actual -> actual instanceof Boolean b ? b != constant
+                : operator.compare(actual, value);
+            case GREATER_THAN -> actual -> actual instanceof Boolean b ? b : operator.compare(actual, value);
+            case LESS_THAN -> actual -> actual instanceof Boolean b ? !b && constant
+                : operator.compare(actual, value);
+            case GREATER_THAN_OR_EQUALS -> actual -> actual instanceof Boolean b ? b || !constant
+                : operator.compare(actual, value);
+            case LESS_THAN_OR_EQUALS -> actual -> actual instanceof Boolean b ? !b
+                : operator.compare(actual, value);
+            default -> actual -> operator.compare(actual, value);
+        };
+    }
+
+    private static CompiledCriterion.Predicate stringPredicate(ComparisonOperator operator, String constant,
+                                                               Object value) {
+        return switch (operator) {
+            case EQUALS -> actual -> actual instanceof String s ? constant.equals(s) : operator.compare(actual, value);
+            case NOT_EQUALS -> actual -> actual instanceof String s ? !constant.equals(s)
+                : operator.compare(actual, value);
+            case GREATER_THAN -> actual -> actual instanceof String s ? s.compareTo(constant) > 0
+                : operator.compare(actual, value);
+            case LESS_THAN -> actual -> actual instanceof String s ? s.compareTo(constant) < 0
+                : operator.compare(actual, value);
+            case GREATER_THAN_OR_EQUALS -> actual -> actual instanceof String s ? s.compareTo(constant) >= 0
+                : operator.compare(actual, value);
+            case LESS_THAN_OR_EQUALS -> actual -> actual instanceof String s ? s.compareTo(constant) <= 0
+                : operator.compare(actual, value);
+            case CONTAINS -> actual -> actual instanceof String s ? s.contains(constant)
+                : operator.compare(actual, value);
+            case STARTS_WITH -> actual -> actual instanceof String s ? s.startsWith(constant)
+                : operator.compare(actual, value);
+            case ENDS_WITH -> actual -> actual instanceof String s ? s.endsWith(constant)
+                : operator.compare(actual, value);
+        };
+    }
+
+    private static Double parseNumber(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        try {
+            double parsed = Double.parseDouble(String.valueOf(value));
+            return Double.isFinite(parsed) ? parsed : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
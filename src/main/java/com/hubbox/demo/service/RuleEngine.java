@@ -0,0 +1,144 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.config.RuleConfig;
+import com.hubbox.demo.dto.DeviceDataSnapshot;
+import com.hubbox.demo.dto.RuleProfileSort;
+import com.hubbox.demo.dto.response.RuleEngineStats;
+import com.hubbox.demo.dto.response.RuleProfileReport;
+import com.hubbox.demo.entities.DeviceRuleEntity;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Rule evaluation without persistence: the {@link RuleIndex} and its condition network, the parallel evaluator, the
+ * scheduler of time-based rules and the firing counters. Time comes from the given clock and fired rules go to the
+ * given {@link RuleActionSink}, so the same engine serves live traffic with the wall clock and replays recorded
+ * traffic with a virtual clock that {@link #advanceTo} moves.
+ */
+public class RuleEngine implements AutoCloseable {
+    private final Map<String, DeviceDataSnapshot> lastDeviceData = new ConcurrentHashMap<>();
+    private final RuleIndex ruleIndex = new RuleIndex(this::getLastDeviceData);
+    private final LongSupplier clock;
+    private final RuleActionSink actionSink;
+    private final RuleProfiler profiler;
+    private final ParallelRuleEvaluator evaluator;
+    private final RuleScheduler scheduler;
+    private final LongAdder firings = new LongAdder();
+    private final LongAdder suppressedFirings = new LongAdder();
+
+    public RuleEngine(RuleConfig config, LongSupplier clock, RuleActionSink actionSink) {
+        this.clock = clock;
+        this.actionSink = actionSink;
+        this.profiler = new RuleProfiler(config.profiling(), config.profileSampleEvery());
+        this.evaluator = new ParallelRuleEvaluator(config, profiler);
+        this.scheduler = new RuleScheduler(config.timerTickMs(), clock, ruleIndex::snapshot, this::handleOutcome);
+    }
+
+    public boolean isLoaded() {
+        return ruleIndex.isLoaded();
+    }
+
+    public void load(Collection<DeviceRuleEntity> rules) {
+        ruleIndex.load(rules);
+        scheduler.sync();
+    }
+
+    public void put(DeviceRuleEntity rule) {
+        ruleIndex.put(rule);
+        scheduler.sync();
+    }
+
+    public void remove(Long ruleId) {
+        ruleIndex.remove(ruleId);
+        scheduler.sync();
+    }
+
+    /**
+     * Starts the wall-clock ticker of scheduled rules. Engines on a virtual clock are driven by {@link #advanceTo}.
+     */
+    public void start() {
+        scheduler.start();
+    }
+
+    /**
+     * Runs the scheduled rules that are due at {@code now} on the calling thread.
+     */
+    public void advanceTo(long now) {
+        scheduler.advance(now);
+    }
+
+    public void process(String deviceName, Map<String, Object> deviceData) {
+        if (ruleIndex.rulesFor(deviceName).isEmpty()) {
+            return;
+        }
+
+        // Güncel veriyi kaydet
+        long now = clock.getAsLong();
+        DeviceDataSnapshot currentSnapshot = new DeviceDataSnapshot(
+            deviceName,
+            deviceData,
+            now
+        );
+        lastDeviceData.put(deviceName, currentSnapshot);
+
+        // Kriterler ağda bir kez değerlendirilir, kurallar sadece sonucu okur
+        Map<Long, Long> costs = profiler.sample() ? new HashMap<>() : null;
+        RuleIndex.Snapshot rules = ruleIndex.apply(deviceName, deviceData, now, costs);
+        scheduler.onDeviceEvent(deviceName, rules.network(), now);
+        // Çok sayıda kural paralel değerlendirilir, aksiyonlar yine kural sırasıyla çalışır
+        List<CompiledRule> matched = rules.rulesFor(deviceName);
+        FiringGate.Outcome[] outcomes = evaluator.evaluate(matched, rules.network(), deviceName, now, costs);
+        for (int i = 0; i < outcomes.length; i++) {
+            handleOutcome(matched.get(i), outcomes[i], now);
+        }
+    }
+
+    public RuleEngineStats getStats() {
+        RuleIndex.Snapshot snapshot = ruleIndex.snapshot();
+        ConditionNetwork network = snapshot.network();
+        return new RuleEngineStats(snapshot.version(), snapshot.enabledRules().size(), network.alphaCount(),
+            network.thresholdAlphaCount(), network.windowCount(), scheduler.pendingTimers(), firings.sum(),
+            suppressedFirings.sum(), evaluator.getStats());
+    }
+
+    public RuleProfileReport getProfile(int top, RuleProfileSort sort) {
+        return new RuleProfileReport(profiler.isEnabled(), profiler.sampleEvery(),
+            profiler.top(ruleIndex.snapshot().enabledRules(), top, sort));
+    }
+
+    public void configureProfiling(boolean enabled, int sampleEvery) {
+        profiler.configure(enabled, sampleEvery);
+    }
+
+    /**
+     * Firings are only counted here; logging them is left to the sink, so replays are not slowed down by it.
+     */
+    private void handleOutcome(CompiledRule rule, FiringGate.Outcome outcome, long timestamp) {
+        switch (outcome) {
+            case FIRED -> {
+                firings.increment();
+                profiler.recordFiring(rule.id(), timestamp);
+                actionSink.execute(rule, timestamp);
+            }
+            case SUPPRESSED -> suppressedFirings.increment();
+            default -> {
+            }
+        }
+    }
+
+    private Map<String, Object> getLastDeviceData(String deviceName) {
+        DeviceDataSnapshot snapshot = lastDeviceData.get(deviceName);
+        return snapshot != null ? snapshot.data() : null;
+    }
+
+    @Override
+    public void close() throws Exception {
+        scheduler.close();
+        evaluator.close();
+    }
+}
@@ -0,0 +1,202 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.entities.DeviceRuleEntity;
+import com.hubbox.demo.exceptions.BaseRuntimeException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Copy-on-write inverted index from device name to the enabled, compiled rules whose
+ * {@code requiredDeviceSequence} references it. The sensor path resolves the rules affected by an update with one
+ * volatile read and a map lookup; rule changes compile the changed rule and only rebuild the lists of the devices it
+ * references, then swap the whole rule set in atomically together with its {@link ConditionNetwork}.
+ */
+@Slf4j
+public class RuleIndex {
+    private static final Comparator<CompiledRule> BY_ID = Comparator.comparing(CompiledRule::id);
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(Snapshot.EMPTY);
+    private final Function<String, Map<String, Object>> lastData;
+    private volatile boolean loaded;
+
+    /**
+     * @param lastData last reported data of a device, used to seed the condition network after a rule change
+     */
+    public RuleIndex(Function<String, Map<String, Object>> lastData) {
+        this.lastData = lastData;
+    }
+
+    public List<CompiledRule> rulesFor(String deviceName) {
+        return current.get().rulesFor(deviceName);
+    }
+
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Feeds a device update into the condition network of the current rule set. If the rule set is swapped while the
+     * update is applied, it is applied again to the new network, whose seed may have missed it; the readings are
+     * recorded into the windows the new network created, while carried-over windows keep them only once.
+     *
+     * @param costs collects the condition network time per rule of a profiled update, or {@code null}
+     * @return the rule set the update was applied to
+     */
+    public Snapshot apply(String deviceName, Map<String, Object> data, long timestamp, Map<Long, Long> costs) {
+        Snapshot snapshot;
+        ConditionNetwork recorded = ConditionNetwork.EMPTY;
+        do {
+            snapshot = current.get();
+            ConditionNetwork network = snapshot.network();
+            if (network != recorded) {
+                network.record(deviceName, data, timestamp, recorded, costs);
+                recorded = network;
+            }
+            network.apply(deviceName, data, costs);
+        } while (snapshot != current.get());
+        return snapshot;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public synchronized void load(Collection<DeviceRuleEntity> rules) {
+        Map<Long, CompiledRule> enabledRules = new TreeMap<>();
+        for (DeviceRuleEntity rule : rules) {
+            if (!isEnabled(rule)) {
+                continue;
+            }
+            try {
+                enabledRules.put(rule.getId(), RuleCompiler.compile(rule));
+            } catch (BaseRuntimeException e) {
+                log.warn("Skipping rule {} that could not be compiled: {}", rule.getId(), e.getMessage());
+            }
+        }
+
+        Map<String, List<CompiledRule>> byDevice = new HashMap<>();
+        for (CompiledRule rule : enabledRules.values()) {
+            referencedDevices(rule).forEach(device -> byDevice.computeIfAbsent(device, key -> new ArrayList<>())
+                .add(rule));
+        }
+        byDevice.replaceAll((key, value) -> List.copyOf(value));
+
+        loaded = true;
+        publish(enabledRules, byDevice);
+    }
+
+    /**
+     * Adds, replaces or - when the rule is disabled - removes a rule.
+     */
+    public synchronized void put(DeviceRuleEntity rule) {
+        if (!isEnabled(rule)) {
+            remove(rule.getId());
+            return;
+        }
+
+        CompiledRule compiled;
+        try {
+            compiled = RuleCompiler.compile(rule);
+        } catch (BaseRuntimeException e) {
+            log.warn("Removing rule {} that could not be compiled: {}", rule.getId(), e.getMessage());
+            remove(rule.getId());
+            return;
+        }
+
+        Snapshot snapshot = current.get();
+        CompiledRule previous = snapshot.enabledRules().get(rule.getId());
+        Map<Long, CompiledRule> enabledRules = new TreeMap<>(snapshot.enabledRules());
+        enabledRules.put(rule.getId(), compiled);
+        publish(enabledRules, reindex(snapshot.byDevice(), previous, compiled));
+    }
+
+    public synchronized void remove(Long ruleId) {
+        Snapshot snapshot = current.get();
+        CompiledRule previous = snapshot.enabledRules().get(ruleId);
+        if (previous == null) {
+            return;
+        }
+
+        Map<Long, CompiledRule> enabledRules = new TreeMap<>(snapshot.enabledRules());
+        enabledRules.remove(ruleId);
+        publish(enabledRules, reindex(snapshot.byDevice(), previous, null));
+    }
+
+    public synchronized void clear() {
+        loaded = false;
+        current.set(Snapshot.EMPTY);
+    }
+
+    private void publish(Map<Long, CompiledRule> enabledRules, Map<String, List<CompiledRule>> byDevice) {
+        Snapshot previous = current.get();
+        ConditionNetwork network = ConditionNetwork.build(enabledRules.values(), lastData, previous.network());
+        current.set(new Snapshot(previous.version() + 1, Collections.unmodifiableMap(enabledRules),
+            Map.copyOf(byDevice), network));
+        log.debug("Rule set v{} published: {} rules, {} condition nodes ({} threshold indexed), {} windows",
+            previous.version() + 1, network.ruleCount(), network.alphaCount(), network.thresholdAlphaCount(),
+            network.windowCount());
+    }
+
+    private static Map<String, List<CompiledRule>> reindex(Map<String, List<CompiledRule>> byDevice,
+                                                           CompiledRule previous, CompiledRule next) {
+        Set<String> affected = new LinkedHashSet<>();
+        if (previous != null) {
+            affected.addAll(referencedDevices(previous));
+        }
+        if (next != null) {
+            affected.addAll(referencedDevices(next));
+        }
+
+        Long ruleId = previous != null ? previous.id() : next.id();
+        Set<String> nextDevices = next != null ? referencedDevices(next) : Set.of();
+        Map<String, List<CompiledRule>> result = new HashMap<>(byDevice);
+
+        for (String device : affected) {
+            List<CompiledRule> rules = new ArrayList<>(byDevice.getOrDefault(device, List.of()));
+            rules.removeIf(rule -> rule.id().equals(ruleId));
+            if (nextDevices.contains(device)) {
+                rules.add(next);
+                rules.sort(BY_ID);
+            }
+
+            if (rules.isEmpty()) {
+                result.remove(device);
+            } else {
+                result.put(device, List.copyOf(rules));
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> referencedDevices(CompiledRule rule) {
+        return new LinkedHashSet<>(rule.requiredDevices());
+    }
+
+    private static boolean isEnabled(DeviceRuleEntity rule) {
+        return Boolean.TRUE.equals(rule.getEnabled());
+    }
+
+    public record Snapshot(
+        long version,
+        Map<Long, CompiledRule> enabledRules,
+        Map<String, List<CompiledRule>> byDevice,
+        ConditionNetwork network
+    ) {
+        static final Snapshot EMPTY = new Snapshot(0, Map.of(), Map.of(), ConditionNetwork.EMPTY);
+
+        public List<CompiledRule> rulesFor(String deviceName) {
+            return byDevice.getOrDefault(deviceName, List.of());
+        }
+    }
+}
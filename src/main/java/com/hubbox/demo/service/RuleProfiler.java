@@ -0,0 +1,110 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.dto.RuleProfileSort;
+import com.hubbox.demo.dto.response.RuleProfileEntry;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-rule evaluation counters. While disabled it costs the evaluator one volatile read per event. While enabled,
+ * one event in {@code sampleEvery} has each of its rules evaluated sequentially and timed, so evaluations, matches
+ * and times count sampled events only. A rule's time includes its share of the criteria, threshold and window work
+ * in the {@link ConditionNetwork}, split evenly among the rules that share a node. Firings and the last firing time
+ * are recorded for every firing, which is rare next to evaluations.
+ */
+final class RuleProfiler {
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+    private final AtomicLong events = new AtomicLong();
+    private volatile boolean enabled;
+    private volatile int sampleEvery;
+
+    RuleProfiler(boolean enabled, int sampleEvery) {
+        this.enabled = enabled;
+        this.sampleEvery = sampleEvery;
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    int sampleEvery() {
+        return sampleEvery;
+    }
+
+    /**
+     * Enabling starts from empty counters.
+     */
+    synchronized void configure(boolean enable, int every) {
+        if (enable && !enabled) {
+            counters.clear();
+        }
+        sampleEvery = every;
+        enabled = enable;
+    }
+
+    boolean sample() {
+        return enabled && events.incrementAndGet() % sampleEvery == 0;
+    }
+
+    void recordEvaluation(Long ruleId, long nanos, boolean matched) {
+        Counters rule = counters.computeIfAbsent(ruleId, key -> new Counters());
+        rule.evaluations.increment();
+        if (matched) {
+            rule.matches.increment();
+        }
+        rule.totalNanos.add(nanos);
+        rule.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    void recordFiring(Long ruleId, long timestamp) {
+        if (!enabled) {
+            return;
+        }
+        Counters rule = counters.computeIfAbsent(ruleId, key -> new Counters());
+        rule.firings.increment();
+        rule.lastFiredAt = timestamp;
+    }
+
+    /**
+     * @param rules the current rule set; counters of rules no longer in it are left out
+     */
+    List<RuleProfileEntry> top(Map<Long, CompiledRule> rules, int limit, RuleProfileSort sort) {
+        return counters.entrySet().stream()
+            .filter(entry -> rules.containsKey(entry.getKey()))
+            .map(entry -> entry.getValue().toEntry(entry.getKey(), rules.get(entry.getKey()).rule().getName()))
+            .sorted(comparator(sort).reversed())
+            .limit(limit)
+            .toList();
+    }
+
+    private static Comparator<RuleProfileEntry> comparator(RuleProfileSort sort) {
+        return switch (sort) {
+            case EVALUATIONS -> Comparator.comparingLong(RuleProfileEntry::evaluations);
+            case MATCHES -> Comparator.comparingLong(RuleProfileEntry::matches);
+            case FIRINGS -> Comparator.comparingLong(RuleProfileEntry::firings);
+            case TOTAL_TIME -> Comparator.comparingLong(RuleProfileEntry::totalNanos);
+            case MAX_TIME -> Comparator.comparingLong(RuleProfileEntry::maxNanos);
+            case AVG_TIME -> Comparator.comparingDouble(RuleProfileEntry::avgNanos);
+        };
+    }
+
+    private static final class Counters {
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder matches = new LongAdder();
+        private final LongAdder firings = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private volatile Long lastFiredAt;
+
+        RuleProfileEntry toEntry(Long ruleId, String ruleName) {
+            long evaluated = evaluations.sum();
+            long total = totalNanos.sum();
+            return new RuleProfileEntry(ruleId, ruleName, evaluated, matches.sum(), firings.sum(), total,
+                maxNanos.get(), evaluated > 0 ? (double) total / evaluated : 0, lastFiredAt);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.dto.RuleTrigger;
+import com.hubbox.demo.dto.TriggerType;
+import com.hubbox.demo.util.HashedTimingWheel;
+import com.hubbox.demo.util.HashedTimingWheel.Timeout;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the scheduled rules of the current rule set from one {@link HashedTimingWheel}. {@code CRON} and
+ * {@code EVERY} rules keep one pending timer for their next trigger time; an {@code INACTIVITY} rule keeps one timer
+ * that every qualifying event of the watched device cancels and schedules again, so it fires once the device has
+ * been quiet for the whole period. When a timer fires, the rule's criteria are checked against the condition network
+ * and the outcome goes through the rule's {@link FiringGate} like any other firing.
+ *
+ * <p>{@link #sync()} reconciles the timers with the current rule set after every rule change; rules whose trigger
+ * did not change keep their timer.
+ */
+@Slf4j
+final class RuleScheduler implements AutoCloseable {
+    private static final int WHEEL_SIZE = 64;
+    private static final int WHEEL_LEVELS = 4;
+
+    private final HashedTimingWheel wheel;
+    private final LongSupplier clock;
+    private final Supplier<RuleIndex.Snapshot> rules;
+    private final OutcomeListener outcomes;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private volatile Map<String, List<Entry>> inactivityByDevice = Map.of();
+
+    RuleScheduler(long tickMs, LongSupplier clock, Supplier<RuleIndex.Snapshot> rules,
+                  OutcomeListener outcomes) {
+        this.wheel = new HashedTimingWheel(tickMs, WHEEL_SIZE, WHEEL_LEVELS, clock);
+        this.clock = clock;
+        this.rules = rules;
+        this.outcomes = outcomes;
+    }
+
+    void start() {
+        wheel.start();
+    }
+
+    /**
+     * Moves virtual time forward; only for schedulers that are not {@link #start() started}.
+     */
+    int advance(long now) {
+        return wheel.advance(now);
+    }
+
+    int pendingTimers() {
+        return wheel.pending();
+    }
+
+    synchronized void sync() {
+        Map<Long, CompiledRule> scheduled = new HashMap<>();
+        rules.get().enabledRules().forEach((id, rule) -> {
+            if (rule.trigger() != null) {
+                scheduled.put(id, rule);
+            }
+        });
+
+        entries.entrySet().removeIf(existing -> {
+            CompiledRule rule = scheduled.get(existing.getKey());
+            if (rule != null && existing.getValue().trigger.equals(rule.trigger())) {
+                return false;
+            }
+            existing.getValue().cancel();
+            return true;
+        });
+
+        long now = clock.getAsLong();
+        Map<String, List<Entry>> byDevice = new HashMap<>();
+        scheduled.forEach((id, rule) -> {
+            Entry entry = entries.get(id);
+            if (entry == null) {
+                long deadline;
+                try {
+                    deadline = firstDeadline(rule, now);
+                } catch (IllegalStateException e) {
+                    log.warn("Skipping scheduled rule {} without a next trigger time: {}", id, e.getMessage());
+                    return;
+                }
+                entry = new Entry(id, rule.trigger());
+                entry.reschedule(deadline);
+                entries.put(id, entry);
+            }
+            if (rule.trigger().type() == TriggerType.INACTIVITY) {
+                byDevice.computeIfAbsent(rule.trigger().deviceName(), key -> new ArrayList<>()).add(entry);
+            }
+        });
+        inactivityByDevice = Map.copyOf(byDevice);
+        log.debug("{} scheduled rules, {} pending timers", entries.size(), wheel.pending());
+    }
+
+    /**
+     * Pushes back the inactivity timers that watch the device, if the event satisfies the rule's criteria on it.
+     */
+    void onDeviceEvent(String deviceName, ConditionNetwork network, long timestamp) {
+        List<Entry> watching = inactivityByDevice.get(deviceName);
+        if (watching == null) {
+            return;
+        }
+        for (Entry entry : watching) {
+            if (network.isSatisfiedFor(entry.ruleId, deviceName)) {
+                entry.reschedule(timestamp + entry.trigger.inactivityMs());
+            }
+        }
+    }
+
+    private long firstDeadline(CompiledRule rule, long now) {
+        RuleTrigger trigger = rule.trigger();
+        return switch (trigger.type()) {
+            case CRON -> rule.cron().next(Instant.ofEpochMilli(now).atZone(zone)).toInstant().toEpochMilli();
+            case EVERY -> now + trigger.everyMs();
+            case INACTIVITY -> now + trigger.inactivityMs();
+        };
+    }
+
+    private void fire(Entry entry, long deadline) {
+        // Bu arada iptal edilen ya da ertelenen zamanlayıcı tetiklemez
+        RuleIndex.Snapshot snapshot = rules.get();
+        CompiledRule rule = snapshot.enabledRules().get(entry.ruleId);
+        if (rule == null || !entry.isCurrent(deadline)) {
+            return;
+        }
+
+        String watched = entry.trigger.type() == TriggerType.INACTIVITY ? entry.trigger.deviceName() : null;
+        outcomes.onOutcome(rule, snapshot.network().fireScheduled(rule.id(), watched, deadline), deadline);
+
+        // Sessizlik tetikleyicisi bir sonraki aktiviteye kadar yeniden kurulmaz
+        switch (entry.trigger.type()) {
+            case CRON -> {
+                try {
+                    entry.rescheduleIfCurrent(deadline,
+                        rule.cron().next(Instant.ofEpochMilli(deadline).atZone(zone)).toInstant().toEpochMilli());
+                } catch (IllegalStateException e) {
+                    log.warn("Scheduled rule {} has no next trigger time: {}", rule.id(), e.getMessage());
+                }
+            }
+            case EVERY -> entry.rescheduleIfCurrent(deadline, deadline + entry.trigger.everyMs());
+            case INACTIVITY -> {
+            }
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        wheel.close();
+    }
+
+    @FunctionalInterface
+    interface OutcomeListener {
+        void onOutcome(CompiledRule rule, FiringGate.Outcome outcome, long timestamp);
+    }
+
+    private final class Entry {
+        private final Long ruleId;
+        private final RuleTrigger trigger;
+        private Timeout timeout;
+        private long deadline;
+        private boolean cancelled;
+
+        private Entry(Long ruleId, RuleTrigger trigger) {
+            this.ruleId = ruleId;
+            this.trigger = trigger;
+        }
+
+        synchronized void reschedule(long nextDeadline) {
+            if (cancelled) {
+                return;
+            }
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            deadline = nextDeadline;
+            timeout = wheel.schedule(nextDeadline, () -> fire(this, nextDeadline));
+        }
+
+        /**
+         * Schedules the next periodic trigger unless the timer was replaced while this one was firing.
+         */
+        synchronized void rescheduleIfCurrent(long firedDeadline, long nextDeadline) {
+            if (isCurrent(firedDeadline)) {
+                reschedule(nextDeadline);
+            }
+        }
+
+        synchronized boolean isCurrent(long firedDeadline) {
+            return !cancelled && deadline == firedDeadline;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
+}
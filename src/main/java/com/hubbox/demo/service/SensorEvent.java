@@ -0,0 +1,25 @@
+package com.hubbox.demo.service;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * Mutable event holder shared by the event pipelines. Ring slots are reused for the lifetime of the ring, lane
+ * entries live until they are dispatched. {@code data} is decoded from {@code payload} on the pipeline thread
+ * when the publisher only had the raw bytes.
+ */
+final class SensorEvent {
+    String deviceName;
+    ByteBuffer payload;
+    Map<String, Object> data;
+
+    void set(String deviceName, ByteBuffer payload, Map<String, Object> data) {
+        this.deviceName = deviceName;
+        this.payload = payload;
+        this.data = data;
+    }
+
+    void clear() {
+        set(null, null, null);
+    }
+}
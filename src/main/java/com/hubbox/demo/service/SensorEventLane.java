@@ -0,0 +1,131 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.config.OverloadPolicy;
+import com.hubbox.demo.dto.response.EventLaneStats;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded single-consumer queue of sensor events. {@link #offer} never waits for capacity and never runs the
+ * handler on the calling thread; when the lane is full the {@link OverloadPolicy} decides whether the event is
+ * coalesced into a pending one or dropped.
+ */
+@Slf4j
+class SensorEventLane implements Runnable {
+    private final int index;
+    private final int capacity;
+    private final OverloadPolicy overloadPolicy;
+    private final Consumer<SensorEvent> handler;
+    private final ArrayDeque<SensorEvent> queue;
+    private final Map<String, SensorEvent> latestPending = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile long completed;
+    private long coalesced;
+    private long dropped;
+
+    SensorEventLane(int index, int capacity, OverloadPolicy overloadPolicy,
+                    Consumer<SensorEvent> handler, ThreadFactory threadFactory) {
+        this.index = index;
+        this.capacity = capacity;
+        this.overloadPolicy = overloadPolicy;
+        this.handler = handler;
+        this.queue = new ArrayDeque<>(capacity);
+        this.thread = threadFactory.newThread(this);
+        this.thread.start();
+    }
+
+    boolean offer(String deviceName, ByteBuffer payload, Map<String, Object> data) {
+        lock.lock();
+        try {
+            if (!running) {
+                dropped++;
+                return false;
+            }
+
+            if (queue.size() < capacity) {
+                SensorEvent event = new SensorEvent();
+                event.set(deviceName, payload, data);
+                queue.addLast(event);
+                if (overloadPolicy == OverloadPolicy.LATEST_WINS) {
+                    latestPending.put(deviceName, event);
+                }
+                notEmpty.signal();
+                return true;
+            }
+
+            SensorEvent pending = overloadPolicy == OverloadPolicy.LATEST_WINS ? latestPending.get(deviceName) : null;
+            if (pending != null) {
+                pending.set(deviceName, payload, data);
+                coalesced++;
+                return true;
+            }
+
+            dropped++;
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            SensorEvent event;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && running) {
+                    notEmpty.await();
+                }
+                event = queue.pollFirst();
+                if (event == null) {
+                    return;
+                }
+                latestPending.remove(event.deviceName, event);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            handler.accept(event);
+            completed++;
+        }
+    }
+
+    EventLaneStats stats() {
+        lock.lock();
+        try {
+            return new EventLaneStats(index, queue.size(), capacity - queue.size(), completed, coalesced, dropped);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close(long timeout, TimeUnit unit) throws InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        thread.join(unit.toMillis(timeout));
+        if (thread.isAlive()) {
+            log.warn("Sensor event lane {} did not drain in time, interrupting", index);
+            thread.interrupt();
+        }
+    }
+}
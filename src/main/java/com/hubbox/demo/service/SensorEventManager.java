@@ -1,66 +1,125 @@
 package com.hubbox.demo.service;
 
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.hubbox.demo.config.EventConfig;
+import com.hubbox.demo.config.EventPipelineMode;
+import com.hubbox.demo.dto.response.EventLaneStats;
 import com.hubbox.demo.listener.SensorEventListener;
+import com.hubbox.demo.util.VirtualThreads;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 @Singleton
 public class SensorEventManager implements AutoCloseable {
-    private final ExecutorService executorService;
+    private final ObjectMapper objectMapper;
+    private final JavaType deviceDataType;
+    private final boolean useVirtualThreads;
+    private final SensorEventPipeline pipeline;
     private final List<SensorEventListener> eventListeners = new CopyOnWriteArrayList<>();
-    private static final int QUEUE_SIZE = 1000;
-
-    public SensorEventManager() {
-        ThreadPoolExecutor executor = new ThreadPoolExecutor(
-            2,
-            4,
-            60L,
-            TimeUnit.SECONDS,
-            new ArrayBlockingQueue<>(QUEUE_SIZE),
-            new ThreadPoolExecutor.CallerRunsPolicy()
-        );
-
-        executor.allowCoreThreadTimeOut(true);
-        this.executorService = executor;
+
+    @Inject
+    public SensorEventManager(EventConfig eventConfig, ObjectMapper objectMapper,
+                              @Named("virtualThreads") boolean virtualThreads) {
+        this.objectMapper = objectMapper;
+        this.deviceDataType = objectMapper.getTypeFactory().constructMapType(Map.class, String.class, Object.class);
+        this.useVirtualThreads = virtualThreads && VirtualThreads.isSupported();
+        if (virtualThreads && !useVirtualThreads) {
+            log.warn("Virtual threads requested but not supported by this JVM, using platform threads");
+        }
+
+        if (eventConfig.pipeline() == EventPipelineMode.RING) {
+            this.pipeline = new RingEventPipeline(eventConfig.ringSize(), eventConfig.overloadPolicy(), this::decode,
+                this::dispatch, threadFactory("sensor-event-decode"), threadFactory("sensor-event-dispatch"));
+            log.info("Sensor event manager started with a {} slot ring on {} threads, overload policy: {}",
+                eventConfig.ringSize(), useVirtualThreads ? "virtual" : "platform", eventConfig.overloadPolicy());
+        } else {
+            this.pipeline = new LaneEventPipeline(eventConfig, event -> {
+                decode(event);
+                dispatch(event);
+            }, lane -> threadFactory("sensor-event-lane-" + lane));
+            log.info("Sensor event manager started with {} {} lanes, overload policy: {}", eventConfig.lanes(),
+                useVirtualThreads ? "virtual" : "platform", eventConfig.overloadPolicy());
+        }
     }
 
     public void addListener(SensorEventListener listener) {
         eventListeners.add(listener);
     }
 
-    public void publishEvent(String deviceName, Map<String, Object> data) {
+    public boolean publishEvent(String deviceName, Map<String, Object> data) {
+        return publish(deviceName, null, data);
+    }
+
+    public boolean publishRawEvent(String deviceName, ByteBuffer payload) {
+        return publish(deviceName, payload, null);
+    }
+
+    public List<EventLaneStats> getLaneStats() {
+        return pipeline.stats();
+    }
+
+    private boolean publish(String deviceName, ByteBuffer payload, Map<String, Object> data) {
         if (eventListeners.isEmpty()) {
+            return false;
+        }
+
+        if (!pipeline.publish(deviceName, payload, data)) {
+            log.trace("Sensor event dropped for device: {}", deviceName);
+            return false;
+        }
+        return true;
+    }
+
+    private void decode(SensorEvent event) {
+        if (event.data != null || event.payload == null) {
             return;
         }
 
-        executorService.execute(() -> {
-            for (SensorEventListener listener : eventListeners) {
-                try {
-                    listener.onDeviceDataReceived(deviceName, data);
-                } catch (Exception e) {
-                    log.error("Error processing event for device: {}", deviceName, e);
-                }
+        try {
+            event.data = objectMapper.readValue(new ByteBufferBackedInputStream(event.payload.duplicate()),
+                deviceDataType);
+        } catch (IOException e) {
+            log.error("Error parsing device data for {}: {}", event.deviceName,
+                StandardCharsets.UTF_8.decode(event.payload.duplicate()), e);
+        }
+    }
+
+    private void dispatch(SensorEvent event) {
+        if (event.data == null) {
+            return;
+        }
+
+        for (SensorEventListener listener : eventListeners) {
+            try {
+                listener.onDeviceDataReceived(event.deviceName, event.data);
+            } catch (Exception e) {
+                log.error("Error processing event for device: {}", event.deviceName, e);
             }
-        });
+        }
+    }
+
+    private ThreadFactory threadFactory(String threadName) {
+        return useVirtualThreads ? VirtualThreads.factory(threadName) : runnable -> new Thread(runnable, threadName);
     }
 
     @Override
     public void close() throws Exception {
-        executorService.shutdown();
         try {
-            if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-            }
+            pipeline.close(5, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
-            executorService.shutdownNow();
             Thread.currentThread().interrupt();
         }
     }
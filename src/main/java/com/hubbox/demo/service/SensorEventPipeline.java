@@ -0,0 +1,16 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.dto.response.EventLaneStats;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+interface SensorEventPipeline {
+
+    boolean publish(String deviceName, ByteBuffer payload, Map<String, Object> data);
+
+    List<EventLaneStats> stats();
+
+    void close(long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -0,0 +1,76 @@
+package com.hubbox.demo.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental NFA over a rule's {@code requiredDeviceSequence}. State {@code k} holds the start time of the most
+ * recent partial match that has seen the first {@code k} devices in order - the latest start is the one with the most
+ * time left, so one timestamp per state is enough. Each qualifying device event advances the states it can extend,
+ * partial matches older than {@code maxTimeDifferenceMs} are dropped, and a completed match is consumed. Work per
+ * event is bounded by the sequence length, whatever the reporting rate.
+ */
+final class SequenceMatcher {
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final List<String> sequence;
+    private final long maxSpanMs;
+    private final Map<String, int[]> positions;
+    private final long[] starts;
+
+    SequenceMatcher(List<String> sequence, Long maxTimeDifferenceMs) {
+        this.sequence = sequence;
+        this.maxSpanMs = maxTimeDifferenceMs != null ? maxTimeDifferenceMs : Long.MAX_VALUE;
+        this.starts = new long[sequence.size() + 1];
+        Arrays.fill(starts, NONE);
+
+        Map<String, List<Integer>> byDevice = new HashMap<>();
+        for (int i = sequence.size() - 1; i >= 0; i--) {
+            byDevice.computeIfAbsent(sequence.get(i), key -> new ArrayList<>()).add(i);
+        }
+        Map<String, int[]> result = new HashMap<>();
+        byDevice.forEach((device, list) -> result.put(device, list.stream().mapToInt(Integer::intValue).toArray()));
+        this.positions = Map.copyOf(result);
+    }
+
+    boolean matches(List<String> otherSequence, Long otherMaxTimeDifferenceMs) {
+        long otherSpan = otherMaxTimeDifferenceMs != null ? otherMaxTimeDifferenceMs : Long.MAX_VALUE;
+        return sequence.equals(otherSequence) && maxSpanMs == otherSpan;
+    }
+
+    /**
+     * @param qualifies whether the device's criteria of the rule hold after this event; events that do not qualify
+     *                  neither advance nor reset the matcher
+     * @return {@code true} if this event completed the sequence
+     */
+    synchronized boolean advance(String deviceName, long timestamp, boolean qualifies) {
+        int[] devicePositions = positions.get(deviceName);
+        if (devicePositions == null || !qualifies) {
+            return false;
+        }
+
+        int length = sequence.size();
+        for (int state = 1; state < length; state++) {
+            if (starts[state] != NONE && timestamp - starts[state] > maxSpanMs) {
+                starts[state] = NONE;
+            }
+        }
+
+        // Pozisyonlar büyükten küçüğe: aynı olay bir eşleşmeyi iki adım ilerletemez
+        for (int position : devicePositions) {
+            long start = position == 0 ? timestamp : starts[position];
+            if (start != NONE && start > starts[position + 1]) {
+                starts[position + 1] = start;
+            }
+        }
+
+        if (starts[length] == NONE) {
+            return false;
+        }
+        Arrays.fill(starts, NONE);
+        return true;
+    }
+}
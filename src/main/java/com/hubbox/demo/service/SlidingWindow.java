@@ -0,0 +1,119 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.dto.AggregationFunction;
+
+/**
+ * Time- and count-bounded window of numeric samples for one {@code (device, field)}. Samples live in a fixed ring
+ * buffer; the sum is maintained incrementally and min/max come from monotonic queues over the same ring, so adding
+ * a sample, expiring old ones and reading any {@link AggregationFunction} are all amortized O(1) and memory never
+ * exceeds {@code maxSamples}.
+ *
+ * <p>Written by the thread that processes the device's events; methods are synchronized only so that a rule set
+ * rebuild can seed its alphas from a window that is being updated.
+ */
+final class SlidingWindow {
+    private final long windowMs;
+    private final int capacity;
+    private final long[] timestamps;
+    private final double[] values;
+    private final long[] minQueue;
+    private final long[] maxQueue;
+    private long head;
+    private long tail;
+    private long minHead;
+    private long minTail;
+    private long maxHead;
+    private long maxTail;
+    private double sum;
+
+    SlidingWindow(long windowMs, int capacity) {
+        this.windowMs = windowMs;
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+        this.minQueue = new long[capacity];
+        this.maxQueue = new long[capacity];
+    }
+
+    synchronized void add(long timestamp, double value) {
+        expire(timestamp);
+        if (tail - head == capacity) {
+            evictOldest();
+        }
+
+        int index = index(tail);
+        timestamps[index] = timestamp;
+        values[index] = value;
+        sum += value;
+
+        while (minTail > minHead && values[index(minQueue[index(minTail - 1)])] >= value) {
+            minTail--;
+        }
+        minQueue[index(minTail++)] = tail;
+        while (maxTail > maxHead && values[index(maxQueue[index(maxTail - 1)])] <= value) {
+            maxTail--;
+        }
+        maxQueue[index(maxTail++)] = tail;
+        tail++;
+
+        // Kayan nokta hatası birikmesin diye toplam her tur yeniden hesaplanır
+        if (tail % capacity == 0) {
+            recomputeSum();
+        }
+    }
+
+    synchronized void expire(long now) {
+        while (head < tail && timestamps[index(head)] <= now - windowMs) {
+            evictOldest();
+        }
+    }
+
+    synchronized int size() {
+        return (int) (tail - head);
+    }
+
+    /**
+     * Value of the aggregate over the samples currently in the window; {@code NaN} when the window is empty, except
+     * for {@link AggregationFunction#COUNT} and {@link AggregationFunction#SUM}.
+     */
+    synchronized double aggregate(AggregationFunction function) {
+        int size = (int) (tail - head);
+        if (size == 0) {
+            return function == AggregationFunction.COUNT || function == AggregationFunction.SUM ? 0 : Double.NaN;
+        }
+        return switch (function) {
+            case AVG -> sum / size;
+            case MIN -> values[index(minQueue[index(minHead)])];
+            case MAX -> values[index(maxQueue[index(maxHead)])];
+            case SUM -> sum;
+            case COUNT -> size;
+            case DELTA -> values[index(tail - 1)] - values[index(head)];
+        };
+    }
+
+    private void evictOldest() {
+        sum -= values[index(head)];
+        if (minQueue[index(minHead)] == head) {
+            minHead++;
+        }
+        if (maxQueue[index(maxHead)] == head) {
+            maxHead++;
+        }
+        head++;
+        if (head == tail) {
+            sum = 0;
+        }
+    }
+
+    private void recomputeSum() {
+        double total = 0;
+        for (long sequence = head; sequence < tail; sequence++) {
+            total += values[index(sequence)];
+        }
+        sum = total;
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
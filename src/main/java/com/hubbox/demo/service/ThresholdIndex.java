@@ -0,0 +1,195 @@
+package com.hubbox.demo.service;
+
+import com.hubbox.demo.dto.ComparisonOperator;
+import com.hubbox.demo.service.ConditionNetwork.AlphaNode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Numeric threshold criteria ({@code >, >=, <, <=} against a number) of one {@code (device, field)}, kept in
+ * threshold-sorted arrays per operator. When a new reading arrives, the alphas whose truth value can change are
+ * exactly those whose threshold lies between the previous and the new reading, so two binary searches per operator
+ * find them without testing the others. Readings that are not numbers fall back to testing every criterion.
+ *
+ * <p>With hysteresis an alpha turns on at its threshold but only turns off once the reading has moved back past the
+ * threshold by the hysteresis band, so each operator keeps a second array sorted by that switch-off point.
+ */
+final class ThresholdIndex {
+    private final String field;
+    private final Bucket greaterThan;
+    private final Bucket greaterThanOrEquals;
+    private final Bucket lessThan;
+    private final Bucket lessThanOrEquals;
+    private final AlphaNode[] alphas;
+    private double value;
+    private boolean hasValue;
+
+    private ThresholdIndex(String field, List<AlphaNode> alphas) {
+        this.field = field;
+        this.alphas = alphas.toArray(AlphaNode[]::new);
+        this.greaterThan = Bucket.of(alphas, ComparisonOperator.GREATER_THAN);
+        this.greaterThanOrEquals = Bucket.of(alphas, ComparisonOperator.GREATER_THAN_OR_EQUALS);
+        this.lessThan = Bucket.of(alphas, ComparisonOperator.LESS_THAN);
+        this.lessThanOrEquals = Bucket.of(alphas, ComparisonOperator.LESS_THAN_OR_EQUALS);
+    }
+
+    static ThresholdIndex of(String field, List<AlphaNode> alphas, Object seed) {
+        ThresholdIndex index = new ThresholdIndex(field, alphas);
+        index.evaluateAll(seed);
+        index.remember(seed);
+        return index;
+    }
+
+    static boolean accepts(AlphaNode alpha) {
+        CompiledCriterion criterion = alpha.criterion();
+        return criterion.aggregation() == null && criterion.constant() instanceof Double && switch (
+            criterion.operator()) {
+            case GREATER_THAN, GREATER_THAN_OR_EQUALS, LESS_THAN, LESS_THAN_OR_EQUALS -> true;
+            default -> false;
+        };
+    }
+
+    String field() {
+        return field;
+    }
+
+    /**
+     * @return number of alphas whose truth value flipped
+     */
+    int update(Object actual) {
+        int flipped;
+        if (hasValue && actual instanceof Number number && !Double.isNaN(number.doubleValue())) {
+            double next = number.doubleValue();
+            if (next > value) {
+                // Yükselen değer: > ve >= eşikleri açılır, < ve <= eşikleri kapanır
+                flipped = greaterThan.on(lowerBound(greaterThan.on, value), lowerBound(greaterThan.on, next), true)
+                    + greaterThanOrEquals.on(upperBound(greaterThanOrEquals.on, value),
+                    upperBound(greaterThanOrEquals.on, next), true)
+                    + lessThan.off(upperBound(lessThan.off, value), upperBound(lessThan.off, next), false)
+                    + lessThanOrEquals.off(lowerBound(lessThanOrEquals.off, value),
+                    lowerBound(lessThanOrEquals.off, next), false);
+            } else if (next < value) {
+                flipped = greaterThan.off(lowerBound(greaterThan.off, next), lowerBound(greaterThan.off, value), false)
+                    + greaterThanOrEquals.off(upperBound(greaterThanOrEquals.off, next),
+                    upperBound(greaterThanOrEquals.off, value), false)
+                    + lessThan.on(upperBound(lessThan.on, next), upperBound(lessThan.on, value), true)
+                    + lessThanOrEquals.on(lowerBound(lessThanOrEquals.on, next),
+                    lowerBound(lessThanOrEquals.on, value), true);
+            } else {
+                flipped = 0;
+            }
+        } else {
+            flipped = evaluateAll(actual);
+        }
+        remember(actual);
+        return flipped;
+    }
+
+    private int evaluateAll(Object actual) {
+        int flipped = 0;
+        for (AlphaNode alpha : alphas) {
+            boolean now;
+            if (actual instanceof Number number && !Double.isNaN(number.doubleValue())) {
+                now = alpha.holds(number.doubleValue());
+            } else {
+                now = actual != null && alpha.criterion().predicate().test(actual);
+            }
+            if (alpha.update(now)) {
+                flipped++;
+            }
+        }
+        return flipped;
+    }
+
+    private void remember(Object actual) {
+        hasValue = actual instanceof Number number && !Double.isNaN(number.doubleValue());
+        value = hasValue ? ((Number) actual).doubleValue() : 0;
+    }
+
+    /**
+     * First index whose threshold is {@code >= v}.
+     */
+    private static int lowerBound(double[] thresholds, double v) {
+        int low = 0;
+        int high = thresholds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (thresholds[mid] < v) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First index whose threshold is {@code > v}.
+     */
+    private static int upperBound(double[] thresholds, double v) {
+        int low = 0;
+        int high = thresholds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (thresholds[mid] <= v) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Alphas of one operator, sorted once by the switch-on threshold and once by the switch-off point (threshold
+     * minus the band for {@code >, >=}, plus the band for {@code <, <=}).
+     */
+    private record Bucket(double[] on, AlphaNode[] onAlphas, double[] off, AlphaNode[] offAlphas) {
+        static Bucket of(List<AlphaNode> candidates, ComparisonOperator operator) {
+            List<AlphaNode> matching = new ArrayList<>();
+            for (AlphaNode alpha : candidates) {
+                if (alpha.criterion().operator() == operator) {
+                    matching.add(alpha);
+                }
+            }
+            double sign = operator == ComparisonOperator.GREATER_THAN
+                || operator == ComparisonOperator.GREATER_THAN_OR_EQUALS ? -1 : 1;
+
+            List<AlphaNode> byOn = new ArrayList<>(matching);
+            byOn.sort(Comparator.comparingDouble(Bucket::threshold));
+            List<AlphaNode> byOff = new ArrayList<>(matching);
+            byOff.sort(Comparator.comparingDouble(alpha -> threshold(alpha) + sign * alpha.criterion().hysteresis()));
+
+            double[] on = new double[byOn.size()];
+            double[] off = new double[byOff.size()];
+            for (int i = 0; i < on.length; i++) {
+                on[i] = threshold(byOn.get(i));
+                off[i] = threshold(byOff.get(i)) + sign * byOff.get(i).criterion().hysteresis();
+            }
+            return new Bucket(on, byOn.toArray(AlphaNode[]::new), off, byOff.toArray(AlphaNode[]::new));
+        }
+
+        int on(int from, int to, boolean state) {
+            return set(onAlphas, from, to, state);
+        }
+
+        int off(int from, int to, boolean state) {
+            return set(offAlphas, from, to, state);
+        }
+
+        private static int set(AlphaNode[] alphas, int from, int to, boolean state) {
+            int flipped = 0;
+            for (int i = from; i < to; i++) {
+                if (alphas[i].update(state)) {
+                    flipped++;
+                }
+            }
+            return flipped;
+        }
+
+        private static double threshold(AlphaNode alpha) {
+            return (Double) alpha.criterion().constant();
+        }
+    }
+}
@@ -4,6 +4,7 @@ import lombok.experimental.UtilityClass;
 
 @UtilityClass
 public final class CacheNames {
-    public static final String DEVICE_COMMANDS = "deviceCommands";
+    public static final String MISSING_COMMANDS = "missingCommands";
+    public static final String COMMAND_DELIVERIES = "commandDeliveries";
     public static final String DEVICE_RULES = "deviceRules";
 }
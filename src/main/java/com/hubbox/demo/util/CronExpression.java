@@ -0,0 +1,146 @@
+package com.hubbox.demo.util;
+
+import java.time.DayOfWeek;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * Five-field cron expression: {@code minute hour day-of-month month day-of-week}. Each field takes {@code *},
+ * numbers, ranges ({@code 1-5}), steps ({@code *}{@code /15}, {@code 0-30/10}) and comma separated lists; days of the
+ * week are {@code 0-7} (both {@code 0} and {@code 7} are Sunday) or {@code MON..SUN}. As in classic cron, when both
+ * day fields are restricted a day matching either of them matches. {@code "0 22 * * MON-FRI"} is 22:00 on weekdays.
+ */
+public final class CronExpression {
+    private static final String[] DAY_NAMES = {"SUN", "MON", "TUE", "WED", "THU", "FRI", "SAT"};
+    private static final int MAX_YEARS = 5;
+
+    private final String expression;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    private CronExpression(String expression) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression needs 5 fields: " + expression);
+        }
+        this.expression = expression;
+        this.minutes = parseField(fields[0], 0, 59, false);
+        this.hours = parseField(fields[1], 0, 23, false);
+        this.daysOfMonth = parseField(fields[2], 1, 31, false);
+        this.months = parseField(fields[3], 1, 12, false);
+        this.daysOfWeek = parseField(fields[4], 0, 7, true);
+        if (daysOfWeek.get(7)) {
+            daysOfWeek.set(0);
+        }
+        this.anyDayOfMonth = "*".equals(fields[2]);
+        this.anyDayOfWeek = "*".equals(fields[4]);
+    }
+
+    public static CronExpression parse(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new IllegalArgumentException("Cron expression is empty");
+        }
+        return new CronExpression(expression);
+    }
+
+    /**
+     * @return the first matching minute strictly after {@code after}, in its zone
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = after.plusYears(MAX_YEARS);
+        while (time.isBefore(limit)) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!matchesDay(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+        throw new IllegalStateException("Cron expression never matches: " + expression);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+
+    private boolean matchesDay(ZonedDateTime time) {
+        boolean dayOfMonth = daysOfMonth.get(time.getDayOfMonth());
+        boolean dayOfWeek = daysOfWeek.get(cronDayOfWeek(time.getDayOfWeek()));
+        if (anyDayOfMonth || anyDayOfWeek) {
+            return dayOfMonth && dayOfWeek;
+        }
+        return dayOfMonth || dayOfWeek;
+    }
+
+    private static int cronDayOfWeek(DayOfWeek day) {
+        return day.getValue() % 7;
+    }
+
+    private static BitSet parseField(String field, int min, int max, boolean dayNames) {
+        BitSet values = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            int step = 1;
+            String range = part;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseValue(part.substring(slash + 1), 1, Integer.MAX_VALUE, false);
+                range = part.substring(0, slash);
+            }
+
+            int from;
+            int to;
+            if ("*".equals(range)) {
+                from = min;
+                to = max;
+            } else if (range.indexOf('-') > 0) {
+                int dash = range.indexOf('-');
+                from = parseValue(range.substring(0, dash), min, max, dayNames);
+                to = parseValue(range.substring(dash + 1), min, max, dayNames);
+            } else {
+                from = parseValue(range, min, max, dayNames);
+                to = slash >= 0 ? max : from;
+            }
+            if (from > to) {
+                throw new IllegalArgumentException("Invalid cron range: " + part);
+            }
+            for (int value = from; value <= to; value += step) {
+                values.set(value);
+            }
+        }
+        return values;
+    }
+
+    private static int parseValue(String value, int min, int max, boolean dayNames) {
+        if (dayNames) {
+            String upper = value.toUpperCase(Locale.ROOT);
+            for (int i = 0; i < DAY_NAMES.length; i++) {
+                if (DAY_NAMES[i].equals(upper)) {
+                    return i;
+                }
+            }
+        }
+        try {
+            int number = Integer.parseInt(value);
+            if (number < min || number > max) {
+                throw new IllegalArgumentException("Cron value out of range " + min + "-" + max + ": " + value);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cron value: " + value, e);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.hubbox.demo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hierarchical hashed timing wheel. Level {@code 0} has one slot per tick, every higher level one slot per full turn
+ * of the level below, so {@code levels} wheels of {@code wheelSize} slots cover {@code wheelSize^levels} ticks.
+ * A timer goes into the lowest level whose range reaches its deadline and moves down a level each time the ticker
+ * reaches its slot; deadlines beyond the top level wait in its last slot and are placed again when it comes round.
+ * Slots are intrusive doubly linked lists, so scheduling and cancelling are O(1).
+ *
+ * <p>Time only moves through {@link #advance(long)}: {@link #start()} runs one daemon thread that calls it every
+ * tick with the wall clock, tests and replays can call it with virtual time instead. Expired tasks run on the thread
+ * that advances the wheel, outside the lock, so they should hand off anything slow.
+ */
+@Slf4j
+public class HashedTimingWheel implements AutoCloseable {
+    private final long tickMs;
+    private final int bits;
+    private final int mask;
+    private final Slot[][] wheels;
+    private final LongSupplier clock;
+    private long currentTick;
+    private int pending;
+    private Thread ticker;
+
+    public HashedTimingWheel(long tickMs, int wheelSize, int levels, LongSupplier clock) {
+        if (tickMs <= 0 || wheelSize < 2 || Integer.bitCount(wheelSize) != 1 || levels < 1) {
+            throw new IllegalArgumentException("Timing wheel needs a positive tick, a power of two size and a level");
+        }
+        this.tickMs = tickMs;
+        this.bits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.clock = clock;
+        this.wheels = new Slot[levels][wheelSize];
+        for (Slot[] wheel : wheels) {
+            for (int i = 0; i < wheelSize; i++) {
+                wheel[i] = new Slot();
+            }
+        }
+        this.currentTick = clock.getAsLong() / tickMs;
+    }
+
+    /**
+     * Runs {@code task} once the wheel has advanced past {@code deadlineMs}; deadlines in the past fire on the next
+     * tick.
+     */
+    public synchronized Timeout schedule(long deadlineMs, Runnable task) {
+        Timeout timeout = new Timeout(this, Math.max(ceilTick(deadlineMs), currentTick + 1), task);
+        place(timeout);
+        pending++;
+        return timeout;
+    }
+
+    public Timeout scheduleAfter(long delayMs, Runnable task) {
+        return schedule(clock.getAsLong() + delayMs, task);
+    }
+
+    public synchronized int pending() {
+        return pending;
+    }
+
+    /**
+     * Moves the wheel forward to {@code nowMs} and runs every task whose deadline has passed, in deadline order.
+     *
+     * @return number of tasks run
+     */
+    public int advance(long nowMs) {
+        List<Timeout> expired = new ArrayList<>();
+        synchronized (this) {
+            long targetTick = nowMs / tickMs;
+            while (currentTick < targetTick) {
+                tick(++currentTick, expired);
+            }
+        }
+
+        for (Timeout timeout : expired) {
+            try {
+                timeout.task.run();
+            } catch (Exception e) {
+                log.error("Timer task failed", e);
+            }
+        }
+        return expired.size();
+    }
+
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = new Thread(this::runTicker, "timing-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = ticker;
+            ticker = null;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void runTicker() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                long now = clock.getAsLong();
+                Thread.sleep(tickMs - now % tickMs);
+                advance(clock.getAsLong());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void tick(long tick, List<Timeout> expired) {
+        // Önce üst seviyeler aşağı indirilir, sonra bu tick'in slotu boşaltılır
+        for (int level = wheels.length - 1; level >= 1; level--) {
+            if ((tick & ((1L << (bits * level)) - 1)) == 0) {
+                Slot slot = wheels[level][(int) ((tick >>> (bits * level)) & mask)];
+                for (Timeout timeout = slot.drain(); timeout != null; ) {
+                    Timeout next = timeout.next;
+                    timeout.next = null;
+                    if (timeout.deadlineTick <= tick) {
+                        expire(timeout, expired);
+                    } else {
+                        place(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+        }
+
+        Slot slot = wheels[0][(int) (tick & mask)];
+        for (Timeout timeout = slot.drain(); timeout != null; ) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            expire(timeout, expired);
+            timeout = next;
+        }
+    }
+
+    private void expire(Timeout timeout, List<Timeout> expired) {
+        timeout.slot = null;
+        timeout.state = Timeout.EXPIRED;
+        pending--;
+        expired.add(timeout);
+    }
+
+    private void place(Timeout timeout) {
+        int top = wheels.length - 1;
+        for (int level = 0; level <= top; level++) {
+            int shift = bits * level;
+            long distance = (timeout.deadlineTick >>> shift) - (currentTick >>> shift);
+            if (distance <= mask) {
+                wheels[level][(int) ((timeout.deadlineTick >>> shift) & mask)].add(timeout);
+                return;
+            }
+        }
+        // Tekerleğin kapsamından uzak: en üst seviyenin son slotunda bekler
+        int shift = bits * top;
+        wheels[top][(int) (((currentTick >>> shift) + mask) & mask)].add(timeout);
+    }
+
+    private synchronized boolean cancel(Timeout timeout) {
+        if (timeout.state != Timeout.PENDING) {
+            return false;
+        }
+        timeout.state = Timeout.CANCELLED;
+        timeout.slot.remove(timeout);
+        pending--;
+        return true;
+    }
+
+    private long ceilTick(long deadlineMs) {
+        return Math.floorDiv(deadlineMs + tickMs - 1, tickMs);
+    }
+
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final HashedTimingWheel wheel;
+        private final long deadlineTick;
+        private final Runnable task;
+        private Slot slot;
+        private Timeout previous;
+        private Timeout next;
+        private int state = PENDING;
+
+        private Timeout(HashedTimingWheel wheel, long deadlineTick, Runnable task) {
+            this.wheel = wheel;
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        public long deadlineMs() {
+            return deadlineTick * wheel.tickMs;
+        }
+
+        /**
+         * @return {@code false} if the timer already fired or was cancelled
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+
+        public boolean isCancelled() {
+            synchronized (wheel) {
+                return state == CANCELLED;
+            }
+        }
+
+        public boolean isExpired() {
+            synchronized (wheel) {
+                return state == EXPIRED;
+            }
+        }
+    }
+
+    private static final class Slot {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.slot = this;
+            timeout.previous = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous == null) {
+                head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+            timeout.slot = null;
+        }
+
+        /**
+         * Detaches the whole list and returns its head; the caller walks it through {@code next}.
+         */
+        Timeout drain() {
+            Timeout first = head;
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+}
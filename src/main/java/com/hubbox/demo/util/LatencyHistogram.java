@@ -0,0 +1,72 @@
+package com.hubbox.demo.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two millisecond buckets: bucket {@code i} counts values up to
+ * {@code 2^i} ms, the last bucket everything above. Percentiles are reported as the upper bound of the bucket they
+ * fall in, so they overstate by at most a factor of two; the mean and the maximum are exact.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 20;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long valueMs) {
+        long value = Math.max(0, valueMs);
+        counts.incrementAndGet(bucket(value));
+        total.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    public double mean() {
+        long count = total.sum();
+        return count > 0 ? (double) sum.sum() / count : 0;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @param quantile between 0 and 1
+     */
+    public long percentile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(1L << i, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int bucket(long value) {
+        if (value <= 1) {
+            return 0;
+        }
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value - 1));
+    }
+}
@@ -0,0 +1,194 @@
+package com.hubbox.demo.util;
+
+import java.util.function.Consumer;
+
+/**
+ * MQTT topic filter trie. Filters are split into levels on {@code /}; {@code +} matches exactly one level and
+ * {@code #} matches the remaining levels, including the parent level itself. Writers are serialized, readers
+ * walk the trie without locking. Children are looked up by a range of the topic, so matching does not allocate.
+ */
+public class TopicTrie<T> {
+    private static final String SINGLE_LEVEL = "+";
+    private static final String MULTI_LEVEL = "#";
+
+    private final Node<T> root = new Node<>();
+
+    public synchronized T put(String filter, T value) {
+        Node<T> node = root;
+        for (String level : filter.split("/", -1)) {
+            Node<T> child = node.children.get(level);
+            if (child == null) {
+                child = new Node<>();
+                node.children = node.children.with(level, child);
+            }
+            node = child;
+        }
+        T previous = node.value;
+        node.value = value;
+        return previous;
+    }
+
+    public synchronized T remove(String filter) {
+        return remove(root, filter.split("/", -1), 0);
+    }
+
+    public void forEachMatch(String topic, Consumer<T> consumer) {
+        match(root, topic, 0, consumer);
+    }
+
+    private T remove(Node<T> node, String[] levels, int depth) {
+        if (depth == levels.length) {
+            T previous = node.value;
+            node.value = null;
+            return previous;
+        }
+
+        Node<T> child = node.children.get(levels[depth]);
+        if (child == null) {
+            return null;
+        }
+
+        T previous = remove(child, levels, depth + 1);
+        if (child.value == null && child.children.isEmpty()) {
+            node.children = node.children.without(levels[depth]);
+        }
+        return previous;
+    }
+
+    private void match(Node<T> node, String topic, int start, Consumer<T> consumer) {
+        Children<T> children = node.children;
+        Node<T> multi = children.get(MULTI_LEVEL);
+        if (multi != null && multi.value != null) {
+            consumer.accept(multi.value);
+        }
+
+        if (start > topic.length()) {
+            T value = node.value;
+            if (value != null) {
+                consumer.accept(value);
+            }
+            return;
+        }
+
+        int end = topic.indexOf('/', start);
+        if (end < 0) {
+            end = topic.length();
+        }
+
+        Node<T> exact = children.get(topic, start, end);
+        if (exact != null) {
+            match(exact, topic, end + 1, consumer);
+        }
+
+        Node<T> single = children.get(SINGLE_LEVEL);
+        if (single != null) {
+            match(single, topic, end + 1, consumer);
+        }
+    }
+
+    private static final class Node<T> {
+        private volatile Children<T> children = Children.empty();
+        private volatile T value;
+    }
+
+    /**
+     * Immutable open-addressing table of child levels, replaced as a whole by writers. Keys hash like
+     * {@link String#hashCode()}, so a range of the topic can be hashed and compared in place.
+     */
+    private static final class Children<T> {
+        private static final Children<?> EMPTY = allocate(0);
+
+        private final String[] keys;
+        private final Node<T>[] nodes;
+        private final int size;
+
+        private Children(String[] keys, Node<T>[] nodes, int size) {
+            this.keys = keys;
+            this.nodes = nodes;
+            this.size = size;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <T> Children<T> empty() {
+            return (Children<T>) EMPTY;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        Node<T> get(String key) {
+            return get(key, 0, key.length());
+        }
+
+        Node<T> get(String topic, int start, int end) {
+            if (size == 0) {
+                return null;
+            }
+            int length = end - start;
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + topic.charAt(i);
+            }
+            int mask = keys.length - 1;
+            for (int i = spread(hash) & mask; keys[i] != null; i = (i + 1) & mask) {
+                String key = keys[i];
+                if (key.length() == length && key.regionMatches(0, topic, start, length)) {
+                    return nodes[i];
+                }
+            }
+            return null;
+        }
+
+        Children<T> with(String key, Node<T> node) {
+            Children<T> next = allocate(size + 1);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    next.insert(keys[i], nodes[i]);
+                }
+            }
+            next.insert(key, node);
+            return next;
+        }
+
+        Children<T> without(String key) {
+            if (get(key) == null) {
+                return this;
+            }
+            if (size == 1) {
+                return empty();
+            }
+            Children<T> next = allocate(size - 1);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null && !keys[i].equals(key)) {
+                    next.insert(keys[i], nodes[i]);
+                }
+            }
+            return next;
+        }
+
+        /**
+         * Only called on a table that is not published yet.
+         */
+        private void insert(String key, Node<T> node) {
+            int mask = keys.length - 1;
+            int i = spread(key.hashCode()) & mask;
+            while (keys[i] != null) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Children<T> allocate(int size) {
+            // En fazla yarısı dolu tutulur, böylece arama zincirleri kısa kalır
+            int capacity = size == 0 ? 0 : Integer.highestOneBit(Math.max(2, size) * 2 - 1) << 1;
+            return new Children<>(new String[capacity], (Node<T>[]) new Node<?>[capacity], size);
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.hubbox.demo.util;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Reflective access to the Java 21 virtual thread builder, so the project can keep targeting Java 17 and still
+ * use virtual threads when it runs on a newer JVM. The builder is created once up front: on Java 19 and 20 it exists
+ * but throws unless preview features are enabled, and such a JVM counts as not supporting virtual threads.
+ */
+@UtilityClass
+public class VirtualThreads {
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builderClass.getMethod("name", String.class);
+            builderFactory = builderClass.getMethod("factory");
+            ofVirtual.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+    }
+
+    public static boolean isSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * @return a virtual thread factory, or a platform thread factory when virtual threads are not supported
+     */
+    public static ThreadFactory factory(String threadName) {
+        if (!isSupported()) {
+            return runnable -> new Thread(runnable, threadName);
+        }
+        try {
+            Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), threadName);
+            return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual thread builder failed after a successful probe", e);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.hubbox.demo.benchmark;
+
+import com.hubbox.demo.config.EventConfig;
+import com.hubbox.demo.config.EventPipelineMode;
+import com.hubbox.demo.config.OverloadPolicy;
+import com.hubbox.demo.dependecy.ObjectMapperFactory;
+import com.hubbox.demo.service.SensorEventManager;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compares sustained throughput and allocation rate of the lane and ring event pipelines.
+ *
+ * <pre>
+ * mvn -B test-compile
+ * java -cp target/test-classes:target/classes:... com.hubbox.demo.benchmark.EventPipelineBenchmark [events] [devices]
+ * </pre>
+ */
+@Slf4j
+public class EventPipelineBenchmark {
+    private static final int DEFAULT_EVENTS = 2_000_000;
+    private static final int DEFAULT_DEVICES = 64;
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_EVENTS;
+        int devices = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_DEVICES;
+
+        for (boolean raw : new boolean[] {false, true}) {
+            for (EventPipelineMode mode : EventPipelineMode.values()) {
+                run(mode, raw, events / 10, devices);
+                Result result = run(mode, raw, events, devices);
+                log.info("{} {} payloads: {} msg/s, {} bytes/msg, {} MB/s allocated, {} GCs ({} ms)", mode,
+                    raw ? "raw" : "decoded", result.messagesPerSecond(), result.bytesPerMessage(),
+                    result.megabytesPerSecond(), result.gcCount(), result.gcMillis());
+            }
+        }
+    }
+
+    private static Result run(EventPipelineMode mode, boolean raw, int events, int devices) throws Exception {
+        EventConfig config = new EventConfig(mode, null, 1024, OverloadPolicy.DROP_NEWEST, 1024);
+        AtomicLong received = new AtomicLong();
+        String[] deviceNames = new String[devices];
+        for (int i = 0; i < devices; i++) {
+            deviceNames[i] = "sensor_" + i;
+        }
+        Map<String, Object> data = Map.of("power", 1520.5, "state", "ON");
+        ByteBuffer payload = ByteBuffer.wrap("{\"power\":1520.5,\"state\":\"ON\"}".getBytes(StandardCharsets.UTF_8))
+            .asReadOnlyBuffer();
+
+        try (SensorEventManager manager = new SensorEventManager(config, ObjectMapperFactory.create(), false)) {
+            manager.addListener((deviceName, deviceData) -> received.incrementAndGet());
+
+            long gcCountBefore = gcCount();
+            long gcMillisBefore = gcMillis();
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+
+            for (int i = 0; i < events; i++) {
+                String deviceName = deviceNames[i % devices];
+                while (!(raw ? manager.publishRawEvent(deviceName, payload) : manager.publishEvent(deviceName, data))) {
+                    Thread.onSpinWait();
+                }
+            }
+            while (received.get() < events) {
+                Thread.onSpinWait();
+            }
+
+            long elapsed = System.nanoTime() - start;
+            long allocated = allocatedBytes() - allocatedBefore;
+            return new Result(events * 1_000_000_000L / elapsed, allocated / events,
+                allocated * 1_000_000_000L / elapsed / (1024 * 1024), gcCount() - gcCountBefore,
+                gcMillis() - gcMillisBefore);
+        }
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return Arrays.stream(threads.getThreadAllocatedBytes(threads.getAllThreadIds())).filter(bytes -> bytes > 0)
+            .sum();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+
+    private record Result(long messagesPerSecond, long bytesPerMessage, long megabytesPerSecond, long gcCount,
+                          long gcMillis) {
+    }
+}